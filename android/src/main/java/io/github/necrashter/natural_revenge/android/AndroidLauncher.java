@@ -1,9 +1,11 @@
 package io.github.necrashter.natural_revenge.android;
 
+import android.os.Build;
 import android.os.Bundle;
 
 import com.badlogic.gdx.backends.android.AndroidApplication;
 import com.badlogic.gdx.backends.android.AndroidApplicationConfiguration;
+import io.github.necrashter.natural_revenge.ForkJoinTaskRunner;
 import io.github.necrashter.natural_revenge.Main;
 
 /** Launches the Android application. */
@@ -13,6 +15,12 @@ public class AndroidLauncher extends AndroidApplication {
         super.onCreate(savedInstanceState);
         AndroidApplicationConfiguration configuration = new AndroidApplicationConfiguration();
         configuration.useImmersiveMode = true; // Recommended, but not required.
+        // GLES 3.0 enables instanced prop rendering. Falls back to GLES 2.0 when unsupported.
+        configuration.useGL30 = true;
+        // ForkJoinPool is available since Lollipop.
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            Main.taskRunner = new ForkJoinTaskRunner();
+        }
         initialize(new Main(null), configuration);
     }
 }
@@ -0,0 +1,24 @@
+#ifdef GL_ES
+#define MED mediump
+precision mediump float;
+#else
+#define MED
+#endif
+
+uniform sampler2D u_texture;
+uniform vec4 u_fogColor;
+uniform float u_alphaTest;
+
+varying MED vec2 v_texCoord0;
+varying float v_lodFade;
+varying float v_fog;
+
+void main() {
+	// Screen-door cross-fade, complementary to the one in prop.frag.
+	if (v_lodFade <= fract(52.9829189 * fract(dot(gl_FragCoord.xy, vec2(0.06711056, 0.00583715)))))
+		discard;
+	vec4 color = texture2D(u_texture, v_texCoord0);
+	if (color.a <= u_alphaTest)
+		discard;
+	gl_FragColor = vec4(mix(color.rgb, u_fogColor.rgb, v_fog), 1.0);
+}
@@ -0,0 +1,20 @@
+// Camera-facing quads for distant props, see ImpostorAtlas.
+attribute vec3 a_position;
+attribute vec2 a_texCoord0;
+attribute float a_lodFade;
+
+uniform mat4 u_projViewTrans;
+uniform vec4 u_cameraPosition;
+
+varying vec2 v_texCoord0;
+varying float v_lodFade;
+varying float v_fog;
+
+void main() {
+	v_texCoord0 = a_texCoord0;
+	v_lodFade = a_lodFade;
+	// Same fog as DefaultShader so that the swap is hidden.
+	vec3 flen = u_cameraPosition.xyz - a_position;
+	v_fog = min(dot(flen, flen) * u_cameraPosition.w, 1.0);
+	gl_Position = u_projViewTrans * vec4(a_position, 1.0);
+}
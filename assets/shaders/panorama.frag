@@ -0,0 +1,11 @@
+#ifdef GL_ES
+precision mediump float;
+#endif
+
+uniform samplerCube u_cubemap;
+
+varying vec3 v_direction;
+
+void main() {
+	gl_FragColor = vec4(textureCube(u_cubemap, v_direction).rgb, 1.0);
+}
@@ -0,0 +1,14 @@
+// Full screen quad that samples the baked menu background, see BakedPanorama.
+attribute vec2 a_position;
+
+uniform mat4 u_invProjView;
+uniform vec3 u_cameraPosition;
+
+varying vec3 v_direction;
+
+void main() {
+	// Points on the far plane are linear in screen space, so the direction can be interpolated.
+	vec4 far = u_invProjView * vec4(a_position, 1.0, 1.0);
+	v_direction = far.xyz / far.w - u_cameraPosition;
+	gl_Position = vec4(a_position, 0.0, 1.0);
+}
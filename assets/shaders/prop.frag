@@ -0,0 +1,73 @@
+#ifdef GL_ES
+#define LOWP lowp
+#define MED mediump
+#define HIGH highp
+precision mediump float;
+#else
+#define MED
+#define LOWP
+#define HIGH
+#endif
+
+#ifdef blendedFlag
+varying float v_opacity;
+#ifdef alphaTestFlag
+varying float v_alphaTest;
+#endif //alphaTestFlag
+#endif //blendedFlag
+
+#ifdef diffuseTextureFlag
+varying MED vec2 v_diffuseUV;
+uniform sampler2D u_diffuseTexture;
+#endif
+
+#ifdef diffuseColorFlag
+uniform vec4 u_diffuseColor;
+#endif
+
+#ifdef lightingFlag
+varying vec3 v_lightDiffuse;
+#endif //lightingFlag
+
+#ifdef fogFlag
+uniform vec4 u_fogColor;
+varying float v_fog;
+#endif // fogFlag
+
+varying float v_lodFade;
+
+void main() {
+	// Screen-door cross-fade, complementary to the one in impostor.frag.
+	if (v_lodFade > fract(52.9829189 * fract(dot(gl_FragCoord.xy, vec2(0.06711056, 0.00583715)))))
+		discard;
+
+	#if defined(diffuseTextureFlag) && defined(diffuseColorFlag)
+		vec4 diffuse = texture2D(u_diffuseTexture, v_diffuseUV) * u_diffuseColor;
+	#elif defined(diffuseTextureFlag)
+		vec4 diffuse = texture2D(u_diffuseTexture, v_diffuseUV);
+	#elif defined(diffuseColorFlag)
+		vec4 diffuse = u_diffuseColor;
+	#else
+		vec4 diffuse = vec4(1.0);
+	#endif
+
+	#ifdef lightingFlag
+		gl_FragColor.rgb = diffuse.rgb * v_lightDiffuse;
+	#else
+		gl_FragColor.rgb = diffuse.rgb;
+	#endif //lightingFlag
+
+	#ifdef fogFlag
+		gl_FragColor.rgb = mix(gl_FragColor.rgb, u_fogColor.rgb, v_fog);
+	#endif // end fogFlag
+
+	#ifdef blendedFlag
+		gl_FragColor.a = diffuse.a * v_opacity;
+		#ifdef alphaTestFlag
+			if (gl_FragColor.a <= v_alphaTest)
+				discard;
+		#endif
+	#else
+		gl_FragColor.a = 1.0;
+	#endif
+}
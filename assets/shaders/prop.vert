@@ -0,0 +1,125 @@
+// Shader for static props (trees etc.) drawn by InstancedPropRenderer.
+// Supports the subset of DefaultShader features used by prop models:
+// diffuse texture/color, alpha test, ambient + directional lights and fog.
+// When instancedFlag is defined, the world transform is read from per-instance attributes instead of u_worldTrans.
+// v_lodFade is used to cross-fade with the impostor of the prop (see impostor.vert).
+
+attribute vec3 a_position;
+uniform mat4 u_projViewTrans;
+
+#ifdef normalFlag
+attribute vec3 a_normal;
+#ifndef instancedFlag
+uniform mat3 u_normalMatrix;
+#endif
+#endif // normalFlag
+
+#ifdef diffuseTextureFlag
+attribute vec2 a_texCoord0;
+uniform vec4 u_diffuseUVTransform;
+varying vec2 v_diffuseUV;
+#endif
+
+#ifdef instancedFlag
+// Rows of the affine world transform.
+attribute vec4 i_worldTrans0;
+attribute vec4 i_worldTrans1;
+attribute vec4 i_worldTrans2;
+#else
+uniform mat4 u_worldTrans;
+#endif
+
+#ifdef blendedFlag
+uniform float u_opacity;
+varying float v_opacity;
+
+#ifdef alphaTestFlag
+uniform float u_alphaTest;
+varying float v_alphaTest;
+#endif //alphaTestFlag
+#endif // blendedFlag
+
+#ifdef lightingFlag
+varying vec3 v_lightDiffuse;
+
+#ifdef ambientLightFlag
+uniform vec3 u_ambientLight;
+#endif // ambientLightFlag
+
+#if defined(numDirectionalLights) && (numDirectionalLights > 0)
+struct DirectionalLight
+{
+	vec3 color;
+	vec3 direction;
+};
+uniform DirectionalLight u_dirLights[numDirectionalLights];
+#endif // numDirectionalLights
+#endif // lightingFlag
+
+uniform vec4 u_cameraPosition;
+#ifdef fogFlag
+varying float v_fog;
+#endif // fogFlag
+
+// x: distance at which the cross-fade starts, y: 1 / length of the cross-fade band.
+uniform vec2 u_lodFade;
+varying float v_lodFade;
+
+void main() {
+	#ifdef diffuseTextureFlag
+		v_diffuseUV = u_diffuseUVTransform.xy + a_texCoord0 * u_diffuseUVTransform.zw;
+	#endif //diffuseTextureFlag
+
+	#ifdef blendedFlag
+		v_opacity = u_opacity;
+		#ifdef alphaTestFlag
+			v_alphaTest = u_alphaTest;
+		#endif //alphaTestFlag
+	#endif // blendedFlag
+
+	#ifdef instancedFlag
+		vec4 p = vec4(a_position, 1.0);
+		vec4 pos = vec4(dot(i_worldTrans0, p), dot(i_worldTrans1, p), dot(i_worldTrans2, p), 1.0);
+	#else
+		vec4 pos = u_worldTrans * vec4(a_position, 1.0);
+	#endif
+	gl_Position = u_projViewTrans * pos;
+
+	#ifdef instancedFlag
+		vec3 origin = vec3(i_worldTrans0.w, i_worldTrans1.w, i_worldTrans2.w);
+	#else
+		vec3 origin = u_worldTrans[3].xyz;
+	#endif
+	v_lodFade = clamp((distance(u_cameraPosition.xyz, origin) - u_lodFade.x) * u_lodFade.y, 0.0, 1.0);
+
+	#if defined(normalFlag)
+		#ifdef instancedFlag
+			// Props are only rotated and uniformly scaled, so the upper 3x3 works as a normal matrix.
+			vec3 normal = normalize(vec3(dot(i_worldTrans0.xyz, a_normal), dot(i_worldTrans1.xyz, a_normal), dot(i_worldTrans2.xyz, a_normal)));
+		#else
+			vec3 normal = normalize(u_normalMatrix * a_normal);
+		#endif
+	#endif // normalFlag
+
+	#ifdef fogFlag
+		vec3 flen = u_cameraPosition.xyz - pos.xyz;
+		float fog = dot(flen, flen) * u_cameraPosition.w;
+		v_fog = min(fog, 1.0);
+	#endif
+
+	#ifdef lightingFlag
+		#ifdef ambientLightFlag
+			v_lightDiffuse = u_ambientLight;
+		#else
+			v_lightDiffuse = vec3(0.0);
+		#endif
+
+		#if defined(numDirectionalLights) && (numDirectionalLights > 0) && defined(normalFlag)
+			for (int i = 0; i < numDirectionalLights; i++) {
+				vec3 lightDir = -u_dirLights[i].direction;
+				float NdotL = clamp(dot(normal, lightDir), 0.0, 1.0);
+				v_lightDiffuse += u_dirLights[i].color * NdotL;
+			}
+		#endif // numDirectionalLights
+	#endif // lightingFlag
+}
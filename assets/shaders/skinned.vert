@@ -0,0 +1,150 @@
+// Instanced skinned shader for NPCs drawn by SkinnedInstanceRenderer, used with prop.frag.
+// Bone matrices are read from the texture baked by BakedAnimation.
+
+attribute vec3 a_position;
+uniform mat4 u_projViewTrans;
+
+#ifdef normalFlag
+attribute vec3 a_normal;
+#endif // normalFlag
+
+#ifdef diffuseTextureFlag
+attribute vec2 a_texCoord0;
+uniform vec4 u_diffuseUVTransform;
+varying vec2 v_diffuseUV;
+#endif
+
+// Rows of the affine world transform.
+attribute vec4 i_worldTrans0;
+attribute vec4 i_worldTrans1;
+attribute vec4 i_worldTrans2;
+// x, y: rows of the bone texture to blend, z: blend weight.
+attribute vec4 i_animation;
+
+#ifdef boneWeight0Flag
+attribute vec2 a_boneWeight0;
+#endif
+#ifdef boneWeight1Flag
+attribute vec2 a_boneWeight1;
+#endif
+#ifdef boneWeight2Flag
+attribute vec2 a_boneWeight2;
+#endif
+#ifdef boneWeight3Flag
+attribute vec2 a_boneWeight3;
+#endif
+
+uniform sampler2D u_boneTexture;
+// x, y: size of a texel, z: index of the first bone of this mesh part.
+uniform vec3 u_boneTexel;
+
+#ifdef blendedFlag
+uniform float u_opacity;
+varying float v_opacity;
+
+#ifdef alphaTestFlag
+uniform float u_alphaTest;
+varying float v_alphaTest;
+#endif //alphaTestFlag
+#endif // blendedFlag
+
+#ifdef lightingFlag
+varying vec3 v_lightDiffuse;
+
+#ifdef ambientLightFlag
+uniform vec3 u_ambientLight;
+#endif // ambientLightFlag
+
+#if defined(numDirectionalLights) && (numDirectionalLights > 0)
+struct DirectionalLight
+{
+	vec3 color;
+	vec3 direction;
+};
+uniform DirectionalLight u_dirLights[numDirectionalLights];
+#endif // numDirectionalLights
+#endif // lightingFlag
+
+uniform vec4 u_cameraPosition;
+#ifdef fogFlag
+varying float v_fog;
+#endif // fogFlag
+
+varying float v_lodFade;
+
+mat4 getBone(float bone, float row) {
+	float u = ((u_boneTexel.z + bone) * 3.0 + 0.5) * u_boneTexel.x;
+	float v = (row + 0.5) * u_boneTexel.y;
+	vec4 r0 = texture2DLod(u_boneTexture, vec2(u, v), 0.0);
+	vec4 r1 = texture2DLod(u_boneTexture, vec2(u + u_boneTexel.x, v), 0.0);
+	vec4 r2 = texture2DLod(u_boneTexture, vec2(u + 2.0 * u_boneTexel.x, v), 0.0);
+	return mat4(
+		r0.x, r1.x, r2.x, 0.0,
+		r0.y, r1.y, r2.y, 0.0,
+		r0.z, r1.z, r2.z, 0.0,
+		r0.w, r1.w, r2.w, 1.0
+	);
+}
+
+mat4 getPose(vec2 boneWeight) {
+	return boneWeight.y * mix(getBone(boneWeight.x, i_animation.x), getBone(boneWeight.x, i_animation.y), i_animation.z);
+}
+
+void main() {
+	#ifdef diffuseTextureFlag
+		v_diffuseUV = u_diffuseUVTransform.xy + a_texCoord0 * u_diffuseUVTransform.zw;
+	#endif //diffuseTextureFlag
+
+	#ifdef blendedFlag
+		v_opacity = u_opacity;
+		#ifdef alphaTestFlag
+			v_alphaTest = u_alphaTest;
+		#endif //alphaTestFlag
+	#endif // blendedFlag
+
+	mat4 skinning = mat4(0.0);
+	#ifdef boneWeight0Flag
+		skinning += getPose(a_boneWeight0);
+	#endif
+	#ifdef boneWeight1Flag
+		skinning += getPose(a_boneWeight1);
+	#endif
+	#ifdef boneWeight2Flag
+		skinning += getPose(a_boneWeight2);
+	#endif
+	#ifdef boneWeight3Flag
+		skinning += getPose(a_boneWeight3);
+	#endif
+
+	vec4 p = skinning * vec4(a_position, 1.0);
+	vec4 pos = vec4(dot(i_worldTrans0, p), dot(i_worldTrans1, p), dot(i_worldTrans2, p), 1.0);
+	gl_Position = u_projViewTrans * pos;
+	v_lodFade = 0.0;
+
+	#if defined(normalFlag)
+		vec3 n = (skinning * vec4(a_normal, 0.0)).xyz;
+		vec3 normal = normalize(vec3(dot(i_worldTrans0.xyz, n), dot(i_worldTrans1.xyz, n), dot(i_worldTrans2.xyz, n)));
+	#endif // normalFlag
+
+	#ifdef fogFlag
+		vec3 flen = u_cameraPosition.xyz - pos.xyz;
+		float fog = dot(flen, flen) * u_cameraPosition.w;
+		v_fog = min(fog, 1.0);
+	#endif
+
+	#ifdef lightingFlag
+		#ifdef ambientLightFlag
+			v_lightDiffuse = u_ambientLight;
+		#else
+			v_lightDiffuse = vec3(0.0);
+		#endif
+
+		#if defined(numDirectionalLights) && (numDirectionalLights > 0) && defined(normalFlag)
+			for (int i = 0; i < numDirectionalLights; i++) {
+				vec3 lightDir = -u_dirLights[i].direction;
+				float NdotL = clamp(dot(normal, lightDir), 0.0, 1.0);
+				v_lightDiffuse += u_dirLights[i].color * NdotL;
+			}
+		#endif // numDirectionalLights
+	#endif // lightingFlag
+}
@@ -0,0 +1,16 @@
+#ifdef GL_ES
+#define MED mediump
+precision mediump float;
+#else
+#define MED
+#endif
+
+uniform sampler2D u_texture;
+
+varying MED vec2 v_texCoord0;
+varying float v_alpha;
+
+void main() {
+	vec4 color = texture2D(u_texture, v_texCoord0);
+	gl_FragColor = vec4(color.rgb, color.a * v_alpha);
+}
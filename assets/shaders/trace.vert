@@ -0,0 +1,29 @@
+// Bullet traces, see DecalPool. Billboarding and fading are done here so that traces cost no CPU after they are added.
+attribute vec3 a_position;
+attribute vec3 a_position2;
+// x: 0 at a_position, 1 at a_position2. y: side of the beam, -1 or 1. z: time of birth.
+attribute vec3 a_params;
+
+uniform mat4 u_projViewTrans;
+uniform vec3 u_cameraPosition;
+uniform float u_time;
+uniform float u_fadeSpeed;
+uniform float u_size;
+
+varying vec2 v_texCoord0;
+varying float v_alpha;
+
+void main() {
+	v_alpha = 1.0 - (u_time - a_params.z) * u_fadeSpeed;
+	v_texCoord0 = vec2(a_params.x, a_params.y * -0.5 + 0.5);
+	vec3 position = mix(a_position, a_position2, a_params.x);
+	// Same orientation as the former BeamDecal: perpendicular to the beam and the view direction.
+	vec3 side = normalize(cross(position - u_cameraPosition, a_position2 - a_position));
+	position += side * (a_params.y * u_size);
+	if (v_alpha <= 0.0) {
+		// Expired but not yet overwritten, move out of the clip volume.
+		gl_Position = vec4(0.0, 0.0, 2.0, 1.0);
+	} else {
+		gl_Position = u_projViewTrans * vec4(position, 1.0);
+	}
+}
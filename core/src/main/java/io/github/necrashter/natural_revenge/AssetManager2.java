@@ -7,6 +7,7 @@ import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.g3d.Attribute;
+import com.badlogic.gdx.graphics.g3d.Environment;
 import com.badlogic.gdx.graphics.g3d.Material;
 import com.badlogic.gdx.graphics.g3d.Model;
 import com.badlogic.gdx.graphics.g3d.ModelInstance;
@@ -18,6 +19,7 @@ import com.badlogic.gdx.graphics.g3d.model.Node;
 import com.badlogic.gdx.graphics.g3d.utils.TextureDescriptor;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.math.collision.BoundingBox;
+import io.github.necrashter.natural_revenge.world.GameWorld;
 import io.github.necrashter.natural_revenge.world.geom.BoxShape;
 import io.github.necrashter.natural_revenge.world.geom.Shape;
 import io.github.necrashter.natural_revenge.world.geom.SphereShape;
@@ -26,6 +28,8 @@ import io.github.necrashter.natural_revenge.world.objects.WeaponPickupObject;
 import io.github.necrashter.natural_revenge.world.objects.TreeObject;
 import io.github.necrashter.natural_revenge.world.player.Firearm;
 import io.github.necrashter.natural_revenge.world.player.Player;
+import io.github.necrashter.natural_revenge.world.render.BakedAnimation;
+import io.github.necrashter.natural_revenge.world.render.ImpostorAtlas;
 
 public class AssetManager2 extends AssetManager {
     public static final BoundingBox tempBox = new BoundingBox();
@@ -124,6 +128,10 @@ public class AssetManager2 extends AssetManager {
         public final ModelInstance model;
         public final Shape modelShape;
         public final Shape physicsShape;
+        /**
+         * Used for distant objects if not null.
+         */
+        public ImpostorAtlas impostor = null;
 
         public GameObjectTemplate(ModelInstance model, Shape modelShape, Shape physicsShape) {
             this.model = model;
@@ -135,6 +143,8 @@ public class AssetManager2 extends AssetManager {
     public GameObjectTemplate treeTemplate;
     public Firearm.Template pistolTemplate, autoRifleTemplate;
     public ModelInstance medkitModelInstance;
+    public BakedAnimation zombieAnimation, pistolZombieAnimation, rifleZombieAnimation, zombieBossAnimation;
+    public BakedAnimation frogAnimation, frog2Animation;
     public Shape medkitShape;
 
     public void done() {
@@ -164,6 +174,15 @@ public class AssetManager2 extends AssetManager {
                 FloatAttribute.createAlphaTest(0.25f),
                 IntAttribute.createCullFace(GL20.GL_NONE)
         );
+        treeTemplate.impostor = new ImpostorAtlas(treeTemplate, createBakeEnvironment());
+
+        zombieAnimation = new BakedAnimation(npcModel, "ManArmature", "ZombieMesh");
+        pistolZombieAnimation = new BakedAnimation(npcModel, "ManArmature", "ZombieMesh", "pistol");
+        rifleZombieAnimation = new BakedAnimation(npcModel, "ManArmature", "ZombieMesh", "M4A1");
+        zombieBossAnimation = new BakedAnimation(npcModel, "ManArmature", "ZombieBoss", "M4A1");
+        frogAnimation = new BakedAnimation(frogModel, "Armature", "frog");
+        frog2Animation = new BakedAnimation(frogModel, "Armature", "frog2");
+        setPoseRate(Main.poseRate);
 
         pistolTemplate = buildFirearmTemplate("pistol");
         autoRifleTemplate = buildFirearmTemplate("ak");
@@ -173,6 +192,15 @@ public class AssetManager2 extends AssetManager {
 //        System.out.println("done");
     }
 
+    /**
+     * Lighting that is baked into impostors, see {@link GameWorld#setLevelLighting}.
+     */
+    private static Environment createBakeEnvironment() {
+        Environment environment = new Environment();
+        GameWorld.setLevelLighting(environment);
+        return environment;
+    }
+
     private GameObjectTemplate buildObjectTemplate(String name) {
         Node node = treeModel.getNode(name);
         BoxShape visibilityHitBox = new BoxShape(node.calculateBoundingBox(tempBox));
@@ -216,4 +244,34 @@ public class AssetManager2 extends AssetManager {
     public HealthPickupObject createHealthPickup(Vector3 position) {
         return createHealthPickup(position, 20);
     }
+
+    private BakedAnimation[] getAnimations() {
+        return new BakedAnimation[] {
+                zombieAnimation, pistolZombieAnimation, rifleZombieAnimation, zombieBossAnimation,
+                frogAnimation, frog2Animation,
+        };
+    }
+
+    /**
+     * Set how many poses per second the animations that are skinned on CPU share, see
+     * {@link io.github.necrashter.natural_revenge.world.render.PoseCache}.
+     */
+    public void setPoseRate(int poseRate) {
+        for (BakedAnimation animation : getAnimations()) {
+            if (animation != null && animation.poseCache != null) {
+                animation.poseCache.setTimeQuantum(1f / poseRate);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (treeTemplate != null && treeTemplate.impostor != null) {
+            treeTemplate.impostor.dispose();
+        }
+        for (BakedAnimation animation : getAnimations()) {
+            if (animation != null) animation.dispose();
+        }
+        super.dispose();
+    }
 }
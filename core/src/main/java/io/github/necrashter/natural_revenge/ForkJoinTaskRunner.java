@@ -0,0 +1,58 @@
+package io.github.necrashter.natural_revenge;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the indices over a fork/join pool. Not available on the web, see Main.gwt.xml.
+ */
+public class ForkJoinTaskRunner implements TaskRunner {
+    /**
+     * Ranges smaller than this are run on one thread.
+     */
+    public static final int BATCH_SIZE = 16;
+
+    private final ForkJoinPool pool;
+
+    public ForkJoinTaskRunner() {
+        // Leave one core for the render thread, which also works while it waits.
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public ForkJoinTaskRunner(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @Override
+    public void forEach(int count, Task task) {
+        if (count <= BATCH_SIZE) {
+            SERIAL.forEach(count, task);
+            return;
+        }
+        pool.invoke(new Range(task, 0, count));
+    }
+
+    @SuppressWarnings("serial")
+    private static class Range extends RecursiveAction {
+        private final Task task;
+        private final int start, end;
+
+        Range(Task task, int start, int end) {
+            this.task = task;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= BATCH_SIZE) {
+                for (int i = start; i < end; ++i) {
+                    task.run(i);
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new Range(task, start, middle), new Range(task, middle, end));
+        }
+    }
+}
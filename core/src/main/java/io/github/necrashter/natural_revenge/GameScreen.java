@@ -26,6 +26,7 @@ import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.Queue;
 
 import io.github.necrashter.natural_revenge.ui.GameOverDialog;
+import io.github.necrashter.natural_revenge.ui.Minimap;
 import io.github.necrashter.natural_revenge.ui.TouchPad;
 import io.github.necrashter.natural_revenge.world.GameWorld;
 import io.github.necrashter.natural_revenge.world.GameWorldRenderer;
@@ -36,6 +37,10 @@ import io.github.necrashter.natural_revenge.world.player.Firearm;
 
 public class GameScreen implements Screen {
     public static final float CROSSHAIR_SIZE = 48f;
+    /**
+     * Brightness of the frozen world behind the dialogs while paused.
+     */
+    public static final float PAUSED_DIM = 0.6f;
     final Main game;
 
     public final GameWorld world;
@@ -49,6 +54,7 @@ public class GameScreen implements Screen {
     private final Label topRightLabel;
     private final Table topRightTable;
     private final Label bottomLabel;
+    private final Minimap minimap;
 
     private final WidgetGroup subtitleGroup;
     private final Label subtitleLabel;
@@ -115,6 +121,17 @@ public class GameScreen implements Screen {
             crosshairContainer.size(CROSSHAIR_SIZE).center();
             hudGroup.addActor(crosshairContainer);
 
+            minimap = new Minimap(world);
+            Container<Minimap> minimapContainer = new Container<>(minimap);
+            minimapContainer.setFillParent(true);
+            if (Main.isMobile()) {
+                // Bottom right is taken by the buttons.
+                minimapContainer.top().left().padTop(120f).padLeft(20f);
+            } else {
+                minimapContainer.bottom().right().pad(20f);
+            }
+            hudGroup.addActor(minimapContainer);
+
             stage.addActor(hudGroup);
         }
 
@@ -318,6 +335,7 @@ public class GameScreen implements Screen {
         }
         setPaused(false);
 
+        world.warmup();
         world.addedToScreen();
     }
 
@@ -484,11 +502,17 @@ public class GameScreen implements Screen {
         if (world.paused == v) return;
         world.paused = v;
         if (!Main.isMobile()) Gdx.input.setCursorCatched(!world.paused);
+        // While paused, only the UI changes. Frames are rendered on input and UI actions.
+        worldRenderer.setFrozen(world.paused, true, PAUSED_DIM);
+        Gdx.graphics.setContinuousRendering(!world.paused);
+        Gdx.graphics.requestRendering();
         if (world.paused) {
             Main.music.paused();
         } else {
             Main.music.resumed();
             world.player.resetMouse();
+            // The first frame includes the time spent paused.
+            world.hitchMonitor.skipNext();
         }
     }
 
@@ -515,9 +539,11 @@ public class GameScreen implements Screen {
 
     @Override
     public void dispose() {
+        Gdx.graphics.setContinuousRendering(true);
         // World renderer is supposed to dispose world as well.
         worldRenderer.dispose();
         stage.dispose();
+        minimap.dispose();
     }
 
     public void playerDied() {
@@ -590,23 +616,24 @@ public class GameScreen implements Screen {
     }
 
     public void mainMenu() {
-        game.setScreen(new MenuScreen(game));
         dispose();
+        game.setScreen(new MenuScreen(game));
     }
 
     public void restart() {
-        game.setScreen(game.getLevel(world.level, world.easiness));
+        // Release GPU resources first so that the next screen reuses them.
         dispose();
+        game.setScreen(game.getLevel(world.level, world.easiness));
     }
 
     public void restartEasier() {
-        game.setScreen(game.getLevel(world.level, world.easiness + 1.0f));
         dispose();
+        game.setScreen(game.getLevel(world.level, world.easiness + 1.0f));
     }
 
     public void nextLevel() {
-        game.setScreen(game.getLevel(world.level + 1, 1.0f));
         dispose();
+        game.setScreen(game.getLevel(world.level + 1, 1.0f));
     }
 
     private SubtitleScriptedEvent activeSubtitle = null;
@@ -16,10 +16,16 @@ import io.github.necrashter.natural_revenge.world.levels.Level2Flying;
 import io.github.necrashter.natural_revenge.world.levels.LevelBossRush;
 import io.github.necrashter.natural_revenge.world.player.EnumeratingRoller;
 import io.github.necrashter.natural_revenge.world.player.RandomRoller;
+import io.github.necrashter.natural_revenge.world.render.GpuResourceCache;
 
 public class Main extends Game {
     public static boolean debugMode = false;
     public static AssetManager2 assets;
+    public static GpuResourceCache gpuCache;
+    /**
+     * Set by the launcher before the application starts.
+     */
+    public static TaskRunner taskRunner = TaskRunner.SERIAL;
     public static RandomRoller randomRoller;
     public static MusicManager music;
     public static Preferences preferences;
@@ -27,6 +33,21 @@ public class Main extends Game {
     public static boolean invertMouseY = false;
     public static float mouseSensitivity = 1.0f; // defaults
     public static float fov = 90f; // default FOV
+    /**
+     * Range of the dynamic internal resolution scale, see LowResWorldRenderer.
+     */
+    public static float minResolutionScale = 0.5f;
+    public static float maxResolutionScale = 1.0f;
+    public static boolean warmup = true;
+    public static boolean bakedMenuBackground = true;
+    /**
+     * Simulation ticks per second, see GameWorld.
+     */
+    public static int tickRate = 60;
+    /**
+     * Poses per second shared by the NPCs that are skinned on CPU, see PoseCache.
+     */
+    public static int poseRate = 30;
     private final PostInit postInit;
     public static Skin skin;
     public static Skin skin2;
@@ -68,6 +89,14 @@ public class Main extends Game {
         Main.invertMouseY = preferences.getBoolean("invertMouseY", Main.invertMouseY);
         Main.mouseSensitivity = preferences.getFloat("mouseSensitivity", Main.mouseSensitivity);
         Main.fov = preferences.getFloat("fov", Main.fov);
+        Main.minResolutionScale = preferences.getFloat("minResolutionScale", Main.minResolutionScale);
+        Main.maxResolutionScale = preferences.getFloat("maxResolutionScale", Main.maxResolutionScale);
+        Main.warmup = preferences.getBoolean("warmup", Main.warmup);
+        // Baking on the web takes a while on every launch, since the cubemap cannot be cached there.
+        Main.bakedMenuBackground = preferences.getBoolean("bakedMenuBackground",
+                Main.bakedMenuBackground && Gdx.app.getType() != Application.ApplicationType.WebGL);
+        Main.tickRate = preferences.getInteger("tickRate", Main.tickRate);
+        Main.poseRate = preferences.getInteger("poseRate", Main.poseRate);
     }
 
     @Override
@@ -79,6 +108,7 @@ public class Main extends Game {
         skin.load(Gdx.files.internal("uiskin.json"));
         skin2 = new Skin(Gdx.files.internal("biological-attack/biological-attack-ui.json"));
 
+        gpuCache = new GpuResourceCache();
         assets = new AssetManager2();
         music = new MusicManager();
         randomRoller = new RandomRoller();
@@ -104,11 +134,19 @@ public class Main extends Game {
         if (screen != null) screen.render(delta);
     }
 
+    @Override
+    public void pause() {
+        super.pause();
+        // Resources released by the previous screens are kept for the next ones, but not while in the background.
+        gpuCache.trim();
+    }
+
     @Override
     public void dispose () {
         skin.dispose();
         skinAtlas.dispose();
         assets.dispose();
+        gpuCache.dispose();
     }
 
     public static boolean isMobile() {
@@ -2,7 +2,10 @@ package io.github.necrashter.natural_revenge;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.PerspectiveCamera;
 import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Dialog;
@@ -16,13 +19,34 @@ import io.github.necrashter.natural_revenge.world.GameWorld;
 import io.github.necrashter.natural_revenge.world.GameWorldRenderer;
 import io.github.necrashter.natural_revenge.world.LowResWorldRenderer;
 import io.github.necrashter.natural_revenge.world.levels.LevelMenuBg;
+import io.github.necrashter.natural_revenge.world.render.BakedPanorama;
 
 public class MenuScreen implements Screen {
+    /**
+     * The live background is rendered at most at this resolution scale and frame rate.
+     */
+    public static final float LIVE_SCALE_LIMIT = 0.5f;
+    public static final float LIVE_FRAME_TIME = 1f / 20f;
+    /**
+     * Vertical component of the view direction of the baked background before normalization.
+     */
+    private static final float PANORAMA_LOOK_DOWN = -0.4f;
+
     final Main game;
     private final Stage stage;
 
-    private final GameWorld world;
-    private final GameWorldRenderer worldRenderer;
+    /**
+     * Live background, when {@link Main#bakedMenuBackground} is false.
+     */
+    private GameWorld world = null;
+    private GameWorldRenderer worldRenderer = null;
+    private float frameTimer = 0f;
+    /**
+     * Baked background, when {@link Main#bakedMenuBackground} is true.
+     */
+    private BakedPanorama panorama = null;
+    private PerspectiveCamera panoramaCamera;
+    private float time = 0f;
 
     public MenuScreen(final Main game) {
         this.game = game;
@@ -82,13 +106,25 @@ public class MenuScreen implements Screen {
         stage.addActor(table);
 
         // Background world
-        world = new LevelMenuBg(game);
-        worldRenderer = new LowResWorldRenderer(world);
+        if (Main.bakedMenuBackground) {
+            panorama = BakedPanorama.load();
+            if (panorama == null) {
+                LevelMenuBg scene = new LevelMenuBg(game);
+                panorama = BakedPanorama.bake(scene, LevelMenuBg.PANORAMA_POSITION);
+                // The scene is only needed for baking.
+                scene.dispose();
+            }
+            panoramaCamera = new PerspectiveCamera(Main.fov, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        } else {
+            world = new LevelMenuBg(game);
+            worldRenderer = new LowResWorldRenderer(world, LIVE_SCALE_LIMIT);
+        }
     }
 
     public void startLevel(int level) {
-        game.setScreen(game.getLevel(level, 1.0f));
+        // Release GPU resources first so that the next screen reuses them.
         dispose();
+        game.setScreen(game.getLevel(level, 1.0f));
     }
 
     public void levelSelectDialog() {
@@ -121,7 +157,6 @@ public class MenuScreen implements Screen {
 
     @Override
     public void render(float delta) {
-        world.update(delta);
         stage.act(delta);
 
         double s = (double) TimeUtils.millis() / 100.0;
@@ -130,13 +165,38 @@ public class MenuScreen implements Screen {
         double b = y > 100 ? (y - 100) * 0.01 : 0;
 //        ScreenUtils.clear((float)b, (float)b, (float)b, 1);
         ScreenUtils.clear(0, 0, 0, 1);
-        worldRenderer.render();
+        if (panorama != null) {
+            renderPanorama(delta);
+        } else {
+            world.update(delta);
+            // Between the frames of the world, the last one is presented again.
+            frameTimer += delta;
+            boolean newFrame = frameTimer >= LIVE_FRAME_TIME;
+            if (newFrame) frameTimer %= LIVE_FRAME_TIME;
+            worldRenderer.setFrozen(!newFrame, false, 1f);
+            worldRenderer.render();
+        }
         stage.draw();
     }
 
+    private void renderPanorama(float delta) {
+        time += delta;
+        float angle = MathUtils.PI2 * time * LevelMenuBg.ORBIT_SPEED;
+        panoramaCamera.direction.set(MathUtils.sin(angle), PANORAMA_LOOK_DOWN, MathUtils.cos(angle)).nor();
+        panoramaCamera.up.set(Vector3.Y);
+        panoramaCamera.update();
+        Gdx.gl.glViewport(0, 0, Gdx.graphics.getBackBufferWidth(), Gdx.graphics.getBackBufferHeight());
+        panorama.render(panoramaCamera);
+    }
+
     @Override
     public void resize(int width, int height) {
-        worldRenderer.screenResize(width, height);
+        if (panorama != null) {
+            panoramaCamera.viewportWidth = width;
+            panoramaCamera.viewportHeight = height;
+        } else {
+            worldRenderer.screenResize(width, height);
+        }
         stage.getViewport().update(width, height, true);
     }
 
@@ -157,8 +217,12 @@ public class MenuScreen implements Screen {
 
     @Override
     public void dispose() {
-        // World renderer is supposed to dispose world as well.
-        worldRenderer.dispose();
+        if (panorama != null) {
+            panorama.dispose();
+        } else {
+            // World renderer is supposed to dispose world as well.
+            worldRenderer.dispose();
+        }
         stage.dispose();
     }
 }
@@ -1,5 +1,6 @@
 package io.github.necrashter.natural_revenge;
 
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.ui.CheckBox;
 import com.badlogic.gdx.scenes.scene2d.ui.Dialog;
@@ -9,6 +10,7 @@ import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 
 import io.github.necrashter.natural_revenge.world.GameWorld;
+import io.github.necrashter.natural_revenge.world.render.DynamicResolution;
 
 public class OptionsDialog extends Dialog {
     public OptionsDialog(GameWorld world) {
@@ -78,6 +80,26 @@ public class OptionsDialog extends Dialog {
             }
         });
 
+        final CheckBox warmupCheckbox = new CheckBox(" Warm Up Levels", Main.skin);
+        warmupCheckbox.setChecked(Main.warmup);
+        warmupCheckbox.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                Main.warmup = warmupCheckbox.isChecked();
+                Main.preferences.putBoolean("warmup", Main.warmup);
+            }
+        });
+
+        final CheckBox bakedMenuCheckbox = new CheckBox(" Baked Menu Background", Main.skin);
+        bakedMenuCheckbox.setChecked(Main.bakedMenuBackground);
+        bakedMenuCheckbox.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                Main.bakedMenuBackground = bakedMenuCheckbox.isChecked();
+                Main.preferences.putBoolean("bakedMenuBackground", Main.bakedMenuBackground);
+            }
+        });
+
         // Sensitivity Slider
         // --- Sensitivity Slider ---
         final Label sensitivityLabel = new Label("Sensitivity:", Main.skin);
@@ -136,10 +158,111 @@ public class OptionsDialog extends Dialog {
         content.row().padTop(20);
 
         content.add(fovRow).left();
+        content.row().padTop(20);
+
+        // --- Resolution Scale Sliders ---
+        final Label minResolutionLabel = new Label("Min Resolution:", Main.skin);
+        final Label minResolutionValue = new Label(resolutionText(Main.minResolutionScale), Main.skin);
+        final Slider minResolutionSlider = new Slider(0.25f, 2f, DynamicResolution.STEP, false, Main.skin);
+        final Label maxResolutionLabel = new Label("Max Resolution:", Main.skin);
+        final Label maxResolutionValue = new Label(resolutionText(Main.maxResolutionScale), Main.skin);
+        final Slider maxResolutionSlider = new Slider(0.25f, 2f, DynamicResolution.STEP, false, Main.skin);
+        minResolutionSlider.setValue(Main.minResolutionScale);
+        maxResolutionSlider.setValue(Main.maxResolutionScale);
+        minResolutionSlider.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                Main.minResolutionScale = minResolutionSlider.getValue();
+                Main.preferences.putFloat("minResolutionScale", Main.minResolutionScale);
+                minResolutionValue.setText(resolutionText(Main.minResolutionScale));
+                if (maxResolutionSlider.getValue() < Main.minResolutionScale) {
+                    maxResolutionSlider.setValue(Main.minResolutionScale);
+                }
+            }
+        });
+        maxResolutionSlider.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                Main.maxResolutionScale = maxResolutionSlider.getValue();
+                Main.preferences.putFloat("maxResolutionScale", Main.maxResolutionScale);
+                maxResolutionValue.setText(resolutionText(Main.maxResolutionScale));
+                if (minResolutionSlider.getValue() > Main.maxResolutionScale) {
+                    minResolutionSlider.setValue(Main.maxResolutionScale);
+                }
+            }
+        });
+
+        Table minResolutionRow = new Table();
+        minResolutionRow.add(minResolutionLabel).padRight(10);
+        minResolutionRow.add(minResolutionSlider).width(200).padRight(10);
+        minResolutionRow.add(minResolutionValue).width(50);
+        content.add(minResolutionRow).left();
+        content.row().padTop(20);
+
+        Table maxResolutionRow = new Table();
+        maxResolutionRow.add(maxResolutionLabel).padRight(10);
+        maxResolutionRow.add(maxResolutionSlider).width(200).padRight(10);
+        maxResolutionRow.add(maxResolutionValue).width(50);
+        content.add(maxResolutionRow).left();
+        content.row().padTop(20);
+
+        // --- Tick Rate Slider ---
+        final Label tickRateLabel = new Label("Tick Rate:", Main.skin);
+        final Label tickRateValue = new Label(String.valueOf(Main.tickRate), Main.skin);
+        final Slider tickRateSlider = new Slider(30f, 120f, 10f, false, Main.skin);
+        tickRateSlider.setValue(Main.tickRate);
+        tickRateSlider.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                Main.tickRate = (int) tickRateSlider.getValue();
+                Main.preferences.putInteger("tickRate", Main.tickRate);
+                tickRateValue.setText(String.valueOf(Main.tickRate));
+                if (world != null) {
+                    world.setTickRate(Main.tickRate);
+                }
+            }
+        });
+
+        Table tickRateRow = new Table();
+        tickRateRow.add(tickRateLabel).padRight(10);
+        tickRateRow.add(tickRateSlider).width(200).padRight(10);
+        tickRateRow.add(tickRateValue).width(50);
+        content.add(tickRateRow).left();
+        content.row().padTop(20);
+
+        // --- Pose Rate Slider ---
+        final Label poseRateLabel = new Label("Pose Rate:", Main.skin);
+        final Label poseRateValue = new Label(String.valueOf(Main.poseRate), Main.skin);
+        final Slider poseRateSlider = new Slider(10f, 60f, 5f, false, Main.skin);
+        poseRateSlider.setValue(Main.poseRate);
+        poseRateSlider.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                Main.poseRate = (int) poseRateSlider.getValue();
+                Main.preferences.putInteger("poseRate", Main.poseRate);
+                poseRateValue.setText(String.valueOf(Main.poseRate));
+                Main.assets.setPoseRate(Main.poseRate);
+            }
+        });
+
+        Table poseRateRow = new Table();
+        poseRateRow.add(poseRateLabel).padRight(10);
+        poseRateRow.add(poseRateSlider).width(200).padRight(10);
+        poseRateRow.add(poseRateValue).width(50);
+        content.add(poseRateRow).left();
+        content.row().padTop(20);
+
+        content.add(warmupCheckbox).left();
+        content.row().padTop(20);
+        content.add(bakedMenuCheckbox).left();
 
         button("Close");
     }
 
+    private static String resolutionText(float scale) {
+        return MathUtils.round(scale * 100) + "%";
+    }
+
     @Override
     protected void result(Object object) {
         Main.preferences.flush();
@@ -0,0 +1,31 @@
+package io.github.necrashter.natural_revenge;
+
+/**
+ * Runs independent tasks, possibly in parallel. Only used for sensing, see
+ * {@link io.github.necrashter.natural_revenge.world.entities.GameEntity#sense()}; the rest of the tick is serial.
+ * <p>
+ * The web build has no threads, so {@link #SERIAL} is the default. Launchers of the other platforms replace
+ * {@link Main#taskRunner} with a {@link ForkJoinTaskRunner}.
+ */
+public interface TaskRunner {
+    interface Task {
+        /**
+         * Must not modify anything that another index may read.
+         */
+        void run(int index);
+    }
+
+    /**
+     * Run the task for each index in [0, count) and return when all of them are done.
+     */
+    void forEach(int count, Task task);
+
+    TaskRunner SERIAL = new TaskRunner() {
+        @Override
+        public void forEach(int count, Task task) {
+            for (int i = 0; i < count; ++i) {
+                task.run(i);
+            }
+        }
+    };
+}
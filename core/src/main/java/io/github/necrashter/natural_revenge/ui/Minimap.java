@@ -0,0 +1,210 @@
+package io.github.necrashter.natural_revenge.ui;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.scenes.scene2d.ui.Widget;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+import io.github.necrashter.natural_revenge.world.GameObject;
+import io.github.necrashter.natural_revenge.world.GameWorld;
+import io.github.necrashter.natural_revenge.world.Terrain;
+import io.github.necrashter.natural_revenge.world.entities.GameEntity;
+import io.github.necrashter.natural_revenge.world.objects.BasePickupObject;
+import io.github.necrashter.natural_revenge.world.objects.TreeObject;
+
+/**
+ * Top-down map around the player.
+ * <p>
+ * Terrain and trees are drawn into a texture once, and again only when {@link GameWorld#forestRevision} changes.
+ * Each frame, only the markers of the entities and pickups near the player are drawn over it.
+ */
+public class Minimap extends Widget implements Disposable {
+    public static final int PIXELS_PER_UNIT = 2;
+    /**
+     * Half of the side of the shown area in world units.
+     */
+    public static final float RANGE = 24f;
+    public static final float SIZE = 160f;
+    public static final float MARKER_SIZE = 4f;
+
+    private static final Color LOW_COLOR = new Color(0.12f, 0.22f, 0.14f, 1f);
+    private static final Color HIGH_COLOR = new Color(0.42f, 0.55f, 0.36f, 1f);
+    private static final Color TREE_COLOR = new Color(0.05f, 0.12f, 0.06f, 1f);
+    private static final Color BACKGROUND_COLOR = new Color(0f, 0f, 0f, 0.5f);
+    private static final Color NPC_COLOR = new Color(0.9f, 0.15f, 0.1f, 1f);
+    private static final Color PICKUP_COLOR = new Color(0.95f, 0.85f, 0.2f, 1f);
+    private static final Color PLAYER_COLOR = Color.WHITE;
+
+    private final GameWorld world;
+    private final Terrain terrain;
+    /**
+     * Shaded heightmap, which never changes.
+     */
+    private final Pixmap terrainPixmap;
+    /**
+     * Heightmap with trees, uploaded to {@link #texture}.
+     */
+    private final Pixmap pixmap;
+    private final Texture texture;
+    private final Texture white;
+    private int forestRevision;
+
+    private final Array<GameEntity> entities = new Array<>();
+    private final Array<GameObject> objects = new Array<>();
+    private final Vector3 min = new Vector3();
+    private final Vector3 max = new Vector3();
+    private final Vector3 temp = new Vector3();
+
+    public Minimap(GameWorld world) {
+        this.world = world;
+        this.terrain = world.terrain;
+        int width = MathUtils.ceil(terrain.width * PIXELS_PER_UNIT);
+        int height = MathUtils.ceil(terrain.height * PIXELS_PER_UNIT);
+        terrainPixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+        drawTerrain();
+        pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+        drawForest();
+        texture = new Texture(pixmap);
+        texture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+
+        Pixmap whitePixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+        whitePixmap.setColor(Color.WHITE);
+        whitePixmap.fill();
+        white = new Texture(whitePixmap);
+        whitePixmap.dispose();
+    }
+
+    private float toWorldX(int pixelX) {
+        return (pixelX + 0.5f) / PIXELS_PER_UNIT - terrain.halfWidth;
+    }
+
+    private float toWorldZ(int pixelY) {
+        return (pixelY + 0.5f) / PIXELS_PER_UNIT - terrain.halfHeight;
+    }
+
+    private void drawTerrain() {
+        float minHeight = Float.POSITIVE_INFINITY, maxHeight = Float.NEGATIVE_INFINITY;
+        for (int h = 0; h < terrain.verticesHeight; ++h) {
+            for (int w = 0; w < terrain.verticesWidth; ++w) {
+                float y = terrain.getVertexHeight(w, h);
+                minHeight = Math.min(minHeight, y);
+                maxHeight = Math.max(maxHeight, y);
+            }
+        }
+        float heightRange = Math.max(maxHeight - minHeight, 1e-3f);
+        Color color = new Color();
+        for (int py = 0; py < terrainPixmap.getHeight(); ++py) {
+            float z = toWorldZ(py);
+            for (int px = 0; px < terrainPixmap.getWidth(); ++px) {
+                float x = toWorldX(px);
+                float y = terrain.getHeight(x, z);
+                // Light comes from +x like the directional light of the levels.
+                float shade = MathUtils.clamp(1f + (terrain.getHeight(x + 1f, z) - y) * 0.4f, 0.6f, 1.3f);
+                color.set(LOW_COLOR).lerp(HIGH_COLOR, (y - minHeight) / heightRange).mul(shade, shade, shade, 1f);
+                terrainPixmap.drawPixel(px, py, Color.rgba8888(color));
+            }
+        }
+    }
+
+    private void drawForest() {
+        pixmap.setBlending(Pixmap.Blending.None);
+        pixmap.drawPixmap(terrainPixmap, 0, 0);
+        pixmap.setColor(TREE_COLOR);
+        for (GameObject object : world.octree.staticObjects) {
+            if (!(object instanceof TreeObject)) continue;
+            ((TreeObject) object).transform.getTranslation(temp);
+            pixmap.fillCircle(
+                    MathUtils.floor((temp.x + terrain.halfWidth) * PIXELS_PER_UNIT),
+                    MathUtils.floor((temp.z + terrain.halfHeight) * PIXELS_PER_UNIT),
+                    PIXELS_PER_UNIT / 2 + 1);
+        }
+        forestRevision = world.forestRevision;
+    }
+
+    @Override
+    public float getPrefWidth() {
+        return SIZE;
+    }
+
+    @Override
+    public float getPrefHeight() {
+        return SIZE;
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        validate();
+        if (world.player == null) return;
+        if (forestRevision != world.forestRevision) {
+            drawForest();
+            texture.draw(pixmap, 0, 0);
+        }
+        float x = getX(), y = getY(), w = getWidth(), h = getHeight();
+        float scale = w / (2f * RANGE);
+        Vector3 center = world.player.hitBox.position;
+
+        batch.setColor(BACKGROUND_COLOR.r, BACKGROUND_COLOR.g, BACKGROUND_COLOR.b, BACKGROUND_COLOR.a * parentAlpha);
+        batch.draw(white, x, y, w, h);
+
+        // Part of the terrain in range. -z is up, so v of the bottom edge is at z1.
+        float x0 = Math.max(center.x - RANGE, -terrain.halfWidth);
+        float x1 = Math.min(center.x + RANGE, terrain.halfWidth);
+        float z0 = Math.max(center.z - RANGE, -terrain.halfHeight);
+        float z1 = Math.min(center.z + RANGE, terrain.halfHeight);
+        if (x0 < x1 && z0 < z1) {
+            batch.setColor(1f, 1f, 1f, parentAlpha);
+            batch.draw(texture,
+                    x + (x0 - center.x + RANGE) * scale, y + (center.z + RANGE - z1) * scale,
+                    (x1 - x0) * scale, (z1 - z0) * scale,
+                    (x0 + terrain.halfWidth) / terrain.width, (z1 + terrain.halfHeight) / terrain.height,
+                    (x1 + terrain.halfWidth) / terrain.width, (z0 + terrain.halfHeight) / terrain.height);
+        }
+
+        // Any height.
+        min.set(center.x - RANGE, -1e6f, center.z - RANGE);
+        max.set(center.x + RANGE, 1e6f, center.z + RANGE);
+        world.octree.query(min, max, entities, objects);
+        batch.setColor(PICKUP_COLOR.r, PICKUP_COLOR.g, PICKUP_COLOR.b, parentAlpha);
+        for (GameObject object : objects) {
+            if (object instanceof BasePickupObject) {
+                Vector3 p = ((BasePickupObject) object).position;
+                drawMarker(batch, center, p.x, p.z, scale, MARKER_SIZE);
+            }
+        }
+        batch.setColor(NPC_COLOR.r, NPC_COLOR.g, NPC_COLOR.b, parentAlpha);
+        for (GameEntity entity : entities) {
+            if (entity == world.player || entity.dead) continue;
+            drawMarker(batch, center, entity.hitBox.position.x, entity.hitBox.position.z, scale, MARKER_SIZE);
+        }
+        entities.clear();
+        objects.clear();
+
+        batch.setColor(PLAYER_COLOR.r, PLAYER_COLOR.g, PLAYER_COLOR.b, parentAlpha);
+        drawMarker(batch, center, center.x, center.z, scale, MARKER_SIZE);
+        temp.set(world.cam.direction.x, 0f, world.cam.direction.z).nor().scl(MARKER_SIZE * 1.5f / scale);
+        drawMarker(batch, center, center.x + temp.x, center.z + temp.z, scale, MARKER_SIZE * 0.5f);
+        batch.setColor(1f, 1f, 1f, 1f);
+    }
+
+    private void drawMarker(Batch batch, Vector3 center, float worldX, float worldZ, float scale, float size) {
+        float dx = worldX - center.x, dz = worldZ - center.z;
+        if (Math.abs(dx) > RANGE || Math.abs(dz) > RANGE) return;
+        batch.draw(white,
+                getX() + (dx + RANGE) * scale - size * 0.5f,
+                getY() + (RANGE - dz) * scale - size * 0.5f,
+                size, size);
+    }
+
+    @Override
+    public void dispose() {
+        terrainPixmap.dispose();
+        pixmap.dispose();
+        texture.dispose();
+        white.dispose();
+    }
+}
@@ -0,0 +1,296 @@
+package io.github.necrashter.natural_revenge.world;
+
+import com.badlogic.gdx.math.Vector3;
+
+/**
+ * Directions toward a single goal for every cell of a {@link NavigationGrid}, shared by all NPCs that pursue it.
+ * <p>
+ * The field is computed with Dijkstra's algorithm from the goal. When the goal moves to another cell, a new field is
+ * computed in the background arrays over the following ticks, at most {@link #CELLS_PER_TICK} cells at a time, and
+ * the old field is used until it's done, unless the goal moved more than {@link #MAX_GOAL_DRIFT} cells away from it.
+ * <p>
+ * The new field is seeded from the old one if the grid hasn't changed: a cell that has a shortest path to the old goal
+ * through the new goal keeps the rest of that path, which is also its shortest path to the new goal. Only the cells on
+ * the edge of that region are expanded again. When the goal moves by a cell on open ground, that skips about a quarter
+ * of the cells.
+ */
+public class FlowField {
+    public static final int CELLS_PER_TICK = 2048;
+    /**
+     * NPCs this close to the goal, in cost units, walk straight toward it.
+     */
+    public static final int DIRECT_COST = 30;
+    /**
+     * The old field is not used while a new one is computed if the goal moved farther than this many cells from it.
+     */
+    public static final int MAX_GOAL_DRIFT = 3;
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final int STRAIGHT_COST = 10;
+    private static final int DIAGONAL_COST = 14;
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DZ = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    public final NavigationGrid grid;
+
+    /**
+     * Finished field: cost to the goal and the next cell on the way for each cell.
+     */
+    private int[] cost, next;
+    /**
+     * Cells of the finished field in an order where each cell comes after its next cell.
+     */
+    private int[] order;
+    private int orderSize = 0;
+    private int goal = -1;
+    /**
+     * Field that is being computed.
+     */
+    private int[] pendingCost, pendingNext, pendingOrder;
+    private int pendingOrderSize = 0;
+    /**
+     * Cells of the pending field whose cost was taken from the finished field.
+     */
+    private final boolean[] seeded;
+    private int pendingGoal = -1;
+    private int pendingRevision = -1;
+    private boolean computing = false;
+    /**
+     * Cell of the goal in the last update.
+     */
+    private int latestGoal = -1;
+
+    /**
+     * Binary min-heap of cells and their costs when they were pushed. Cells can be in it more than once.
+     */
+    private int[] heapCells, heapKeys;
+    private int heapSize = 0;
+
+    /**
+     * Statistics.
+     */
+    public int computedFields = 0;
+    public int seededCells = 0;
+
+    public FlowField(NavigationGrid grid) {
+        this.grid = grid;
+        int n = grid.getCellCount();
+        cost = new int[n];
+        next = new int[n];
+        pendingCost = new int[n];
+        pendingNext = new int[n];
+        order = new int[n];
+        pendingOrder = new int[n];
+        seeded = new boolean[n];
+        heapCells = new int[n];
+        heapKeys = new int[n];
+    }
+
+    public boolean isReady() {
+        return goal != -1;
+    }
+
+    /**
+     * Continue the computation, or start a new one if the goal or the grid changed.
+     */
+    public void update(Vector3 goalPosition) {
+        int goalCell = grid.getCell(goalPosition.x, goalPosition.z);
+        if (goalCell == -1) return;
+        latestGoal = goalCell;
+        if (!computing) {
+            if (goalCell == goal && grid.revision == pendingRevision) return;
+            start(goalCell);
+        }
+        step(CELLS_PER_TICK);
+    }
+
+    private void start(int goalCell) {
+        boolean reuse = goal != -1 && grid.revision == pendingRevision && cost[goalCell] != UNREACHED;
+        pendingGoal = goalCell;
+        pendingRevision = grid.revision;
+        for (int i = 0; i < pendingCost.length; ++i) {
+            pendingCost[i] = UNREACHED;
+            pendingNext[i] = -1;
+            seeded[i] = false;
+        }
+        pendingCost[goalCell] = 0;
+        pendingOrderSize = 0;
+        heapSize = 0;
+        if (reuse) {
+            seed(goalCell);
+        } else {
+            seededCells = 0;
+            push(goalCell);
+        }
+        computing = true;
+    }
+
+    /**
+     * Copy the cells that have a shortest path through the new goal from the finished field, and push the ones that
+     * have a neighbor outside of them.
+     */
+    private void seed(int goalCell) {
+        final int base = cost[goalCell];
+        final int cellsX = grid.cellsX;
+        seeded[goalCell] = true;
+        pendingOrder[pendingOrderSize++] = goalCell;
+        // A cell is seeded if the last step of one of its shortest paths is from a seeded cell, which comes first.
+        for (int i = 0; i < orderSize; ++i) {
+            int cell = order[i];
+            if (cell == goalCell) continue;
+            int cx = cell % cellsX, cz = cell / cellsX;
+            for (int d = 0; d < 8; ++d) {
+                int stepCost = getStepCost(cx, cz, d);
+                if (stepCost == -1) continue;
+                int neighbor = cx + DX[d] + (cz + DZ[d]) * cellsX;
+                if (seeded[neighbor] && cost[neighbor] + stepCost == cost[cell]) {
+                    seeded[cell] = true;
+                    pendingCost[cell] = cost[cell] - base;
+                    pendingNext[cell] = neighbor;
+                    pendingOrder[pendingOrderSize++] = cell;
+                    break;
+                }
+            }
+        }
+        seededCells = pendingOrderSize;
+        for (int i = 0; i < pendingOrderSize; ++i) {
+            int cell = pendingOrder[i];
+            int cx = cell % cellsX, cz = cell / cellsX;
+            for (int d = 0; d < 8; ++d) {
+                if (getStepCost(cx, cz, d) != -1 && !seeded[cx + DX[d] + (cz + DZ[d]) * cellsX]) {
+                    push(cell);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Cost of the step from the cell to its neighbor in the given direction, or -1 if it cannot be taken.
+     * Same in both ways.
+     */
+    private int getStepCost(int cx, int cz, int d) {
+        final int cellsX = grid.cellsX;
+        int nx = cx + DX[d], nz = cz + DZ[d];
+        if (nx < 0 || nx >= cellsX || nz < 0 || nz >= grid.cellsZ) return -1;
+        if (grid.isBlocked(nx + nz * cellsX)) return -1;
+        if (d < 4) return STRAIGHT_COST;
+        // Don't cut corners of the obstacles.
+        if (grid.isBlocked(nx + cz * cellsX) || grid.isBlocked(cx + nz * cellsX)) return -1;
+        return DIAGONAL_COST;
+    }
+
+    private void step(int budget) {
+        final int cellsX = grid.cellsX;
+        while (heapSize > 0 && budget-- > 0) {
+            int cell = pop();
+            if (cell == -1) continue;
+            if (!seeded[cell]) pendingOrder[pendingOrderSize++] = cell;
+            int cellCost = pendingCost[cell];
+            int cx = cell % cellsX, cz = cell / cellsX;
+            for (int d = 0; d < 8; ++d) {
+                int stepCost = getStepCost(cx, cz, d);
+                if (stepCost == -1) continue;
+                int neighbor = cx + DX[d] + (cz + DZ[d]) * cellsX;
+                int newCost = cellCost + stepCost;
+                if (newCost < pendingCost[neighbor]) {
+                    pendingCost[neighbor] = newCost;
+                    pendingNext[neighbor] = cell;
+                    push(neighbor);
+                }
+            }
+        }
+        if (heapSize == 0) {
+            int[] swap = cost;
+            cost = pendingCost;
+            pendingCost = swap;
+            swap = next;
+            next = pendingNext;
+            pendingNext = swap;
+            swap = order;
+            order = pendingOrder;
+            pendingOrder = swap;
+            orderSize = pendingOrderSize;
+            goal = pendingGoal;
+            computing = false;
+            computedFields++;
+        }
+    }
+
+    private void push(int cell) {
+        if (heapSize == heapCells.length) {
+            int[] newCells = new int[heapSize * 2];
+            System.arraycopy(heapCells, 0, newCells, 0, heapSize);
+            heapCells = newCells;
+            int[] newKeys = new int[heapSize * 2];
+            System.arraycopy(heapKeys, 0, newKeys, 0, heapSize);
+            heapKeys = newKeys;
+        }
+        int i = heapSize++;
+        int key = pendingCost[cell];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (heapKeys[parent] <= key) break;
+            heapCells[i] = heapCells[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heapCells[i] = cell;
+        heapKeys[i] = key;
+    }
+
+    /**
+     * @return The cell with the lowest cost, or -1 if it was pushed again with a lower cost since.
+     */
+    private int pop() {
+        int top = heapCells[0];
+        int topKey = heapKeys[0];
+        int lastCell = heapCells[--heapSize];
+        int lastKey = heapKeys[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+            if (heapKeys[child] >= lastKey) break;
+            heapCells[i] = heapCells[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        if (heapSize > 0) {
+            heapCells[i] = lastCell;
+            heapKeys[i] = lastKey;
+        }
+        return topKey == pendingCost[top] ? top : -1;
+    }
+
+    /**
+     * Direction to walk in from the position, on the XZ plane.
+     * @return False if there is no direction and the caller should steer by itself, e.g. when the position is close
+     * to the goal, blocked or unreachable.
+     */
+    public boolean getDirection(Vector3 position, Vector3 out) {
+        if (goal == -1 || getDrift() > MAX_GOAL_DRIFT) return false;
+        int cell = grid.getCell(position.x, position.z);
+        if (cell == -1 || cost[cell] <= DIRECT_COST || next[cell] == -1) return false;
+        int target = next[cell];
+        // The obstacles may have changed since the field was computed.
+        if (grid.isBlocked(target)) return false;
+        out.set(grid.getCenterX(target) - position.x, 0f, grid.getCenterZ(target) - position.z).nor();
+        return true;
+    }
+
+    /**
+     * @return Distance in cells between the goal of the finished field and the latest goal.
+     */
+    private int getDrift() {
+        if (goal == latestGoal) return 0;
+        int cellsX = grid.cellsX;
+        return Math.max(Math.abs(goal % cellsX - latestGoal % cellsX), Math.abs(goal / cellsX - latestGoal / cellsX));
+    }
+
+    public void buildText(StringBuilder stringBuilder) {
+        stringBuilder.append("Flow fields: ").append(computedFields).append(", seeded: ").append(seededCells);
+        if (computing) stringBuilder.append(" (computing)");
+    }
+}
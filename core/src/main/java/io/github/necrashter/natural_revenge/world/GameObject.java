@@ -11,42 +11,70 @@ public abstract class GameObject {
      * Determines whether update function should be called every frame.
      */
     boolean requiresUpdates = false;
+    /**
+     * Removed while the octree is being updated. Ignored in collisions until it's actually removed.
+     */
+    boolean removalPending = false;
+    /**
+     * World bounds, computed by {@link #computeBounds} when first needed after {@link #invalidateBounds()}.
+     */
+    protected final Vector3 boundsMin = new Vector3();
+    protected final Vector3 boundsMax = new Vector3();
+    private boolean boundsDirty = true;
 
     public void remove() {
-        if (octreeNode != null) {
-            octreeNode.objects.removeValue(this, true);
-            octreeNode = null;
-        }
-        if (requiresUpdates) {
-            world.octree.dynamicObjects.removeValue(this, true);
-        } else {
-            world.octree.staticObjects.removeValue(this, true);
-        }
-        world = null;
+        if (world != null) world.octree.remove(this);
     }
 
     public void setRequiresUpdates(boolean b) {
         if (requiresUpdates == b) return;
         requiresUpdates = b;
-        if (world != null) {
-            if (requiresUpdates) {
-                world.octree.staticObjects.removeValue(this, true);
-                world.octree.dynamicObjects.add(this);
-            } else {
-                world.octree.dynamicObjects.removeValue(this, true);
-                world.octree.staticObjects.add(this);
-            }
-        }
+        if (world != null) world.octree.sort(this);
     }
 
     public void update(float delta) {}
 
     public abstract void render(GameWorld world);
-    public abstract void getMinPoint(Vector3 p);
-    public abstract void getMaxPoint(Vector3 p);
+    /**
+     * Must be called whenever the object is moved.
+     */
+    public void invalidateBounds() {
+        boundsDirty = true;
+    }
+
+    protected void validateBounds() {
+        if (boundsDirty) {
+            computeBounds(boundsMin, boundsMax);
+            boundsDirty = false;
+        }
+    }
+
+    /**
+     * Compute the axis aligned world bounds from the current transform.
+     */
+    protected abstract void computeBounds(Vector3 min, Vector3 max);
+
+    public final void getMinPoint(Vector3 p) {
+        validateBounds();
+        p.set(boundsMin);
+    }
+
+    public final void getMaxPoint(Vector3 p) {
+        validateBounds();
+        p.set(boundsMax);
+    }
+
     public abstract float intersectsGetRayT(Ray ray);
     public abstract void hit(GameEntity entity);
     public boolean moveCheck(GameEntity.MoveCheck moveCheck) {
         return false;
     }
+
+    /**
+     * @return True if {@link #moveCheck} can block entities. {@link NavigationGrid} is built again when such an object
+     * is added or removed.
+     */
+    public boolean isObstacle() {
+        return false;
+    }
 }
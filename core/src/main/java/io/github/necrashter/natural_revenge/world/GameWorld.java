@@ -1,10 +1,12 @@
 package io.github.necrashter.natural_revenge.world;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.PerspectiveCamera;
 import com.badlogic.gdx.graphics.g3d.Environment;
-import com.badlogic.gdx.graphics.g3d.ModelBatch;
-import com.badlogic.gdx.graphics.g3d.decals.CameraGroupStrategy;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.environment.DirectionalLight;
 import com.badlogic.gdx.graphics.g3d.decals.DecalBatch;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
@@ -15,6 +17,7 @@ import com.badlogic.gdx.utils.viewport.Viewport;
 import io.github.necrashter.natural_revenge.GameScreen;
 import io.github.necrashter.natural_revenge.Main;
 import io.github.necrashter.natural_revenge.world.decals.DecalPool;
+import io.github.necrashter.natural_revenge.world.entities.AiScheduler;
 import io.github.necrashter.natural_revenge.world.entities.GameEntity;
 import io.github.necrashter.natural_revenge.world.geom.RayIntersection;
 import io.github.necrashter.natural_revenge.objectives.LevelObjective;
@@ -23,6 +26,14 @@ import io.github.necrashter.natural_revenge.world.objects.FrogParticle;
 import io.github.necrashter.natural_revenge.world.objects.TreeObject;
 import io.github.necrashter.natural_revenge.world.player.Player;
 import io.github.necrashter.natural_revenge.world.player.Statistics;
+import io.github.necrashter.natural_revenge.world.decals.DecayingDecal;
+import io.github.necrashter.natural_revenge.world.objects.WeaponPickupObject;
+import io.github.necrashter.natural_revenge.world.render.HitchMonitor;
+import io.github.necrashter.natural_revenge.world.render.InstancedPropRenderer;
+import io.github.necrashter.natural_revenge.world.render.OcclusionCuller;
+import io.github.necrashter.natural_revenge.world.render.RenderQueue;
+import io.github.necrashter.natural_revenge.world.render.SkinnedInstanceRenderer;
+import io.github.necrashter.natural_revenge.world.render.WarmupPass;
 
 public class GameWorld implements GameWorldRenderer {
     public final Main game;
@@ -33,17 +44,43 @@ public class GameWorld implements GameWorldRenderer {
     public boolean paused = true;
     public float time = 0.0f;
     Viewport viewport;
-    public ModelBatch modelBatch;
+    public RenderQueue modelBatch;
     public DecalBatch decalBatch;
+    public InstancedPropRenderer propRenderer;
+    public SkinnedInstanceRenderer skinnedRenderer;
+    public final OcclusionCuller occlusionCuller = new OcclusionCuller();
     public DecalPool decalPool = new DecalPool();
+    /**
+     * Levels add the NPCs and pools they will use. Pickups and decals are added in {@link #warmup()}.
+     */
+    public final WarmupPass warmupPass = new WarmupPass();
+    public final HitchMonitor hitchMonitor = new HitchMonitor();
     public Environment environment;
     public int visibleCount;
+    /**
+     * Incremented in each {@link #render()}.
+     */
+    public int frameIndex = 0;
 
     public Octree octree;
+    public final AiScheduler aiScheduler = new AiScheduler();
+    public final LineOfSight lineOfSight = new LineOfSight();
+    /**
+     * Created in the first tick, when the level is done adding the objects.
+     */
+    public NavigationGrid navigationGrid = null;
+    /**
+     * Toward the player, for the NPCs that pursue it.
+     */
+    public FlowField flowField = null;
     public Player player;
     public Terrain terrain;
 
     public float viewDistance = 25.f;
+    /**
+     * Incremented when a tree falls, so that cached drawings of the forest can be redone.
+     */
+    public int forestRevision = 0;
 
     // Pools (not all of them are initialized in every level)
     public FrogParticle.Pool frogParticlePool;
@@ -56,6 +93,7 @@ public class GameWorld implements GameWorldRenderer {
         this.game = game;
         this.level = level;
         this.easiness = easiness;
+        setTickRate(Main.tickRate);
 
         cam = new PerspectiveCamera(Main.fov, 1280, 720);
         cam.position.set(10f, 10f, 10f);
@@ -69,13 +107,36 @@ public class GameWorld implements GameWorldRenderer {
 //        String vert = Gdx.files.internal("shaders/l.vert").readString();
 //        String frag = Gdx.files.internal("shaders/l.frag").readString();
 //        modelBatch = new ModelBatch(vert, frag);
-        modelBatch = new ModelBatch();
+        modelBatch = Main.gpuCache.acquireRenderQueue();
 
-        decalBatch = new DecalBatch(new CameraGroupStrategy(cam));
+        decalBatch = Main.gpuCache.acquireDecalBatch(cam);
+        propRenderer = new InstancedPropRenderer();
+        skinnedRenderer = new SkinnedInstanceRenderer();
 
         environment = new Environment();
     }
 
+    /**
+     * Render everything that can appear later in the level once, so that it doesn't cause a hitch when it first
+     * appears. Called by GameScreen before {@link #addedToScreen()}.
+     */
+    public void warmup() {
+        if (Main.warmup) {
+            Vector3 position = new Vector3();
+            warmupPass.add(Main.assets.createHealthPickup(position));
+            warmupPass.add(new WeaponPickupObject(Main.assets.pistolTemplate.model, Main.assets.pistolTemplate.shape,
+                    position, null));
+            warmupPass.add(new WeaponPickupObject(Main.assets.autoRifleTemplate.model,
+                    Main.assets.autoRifleTemplate.shape, position, null));
+            if (frogParticlePool != null) warmupPass.addPool(frogParticlePool);
+            warmupPass.add(DecayingDecal.newDecayingDecal(Main.assets.muzzleFlashRegion, true));
+            warmupPass.run(this);
+            Gdx.app.log("GameWorld", "Warmup: " + warmupPass.sampleCount + " samples in "
+                    + warmupPass.durationMillis + " ms");
+        }
+        hitchMonitor.reset();
+    }
+
     /**
      * Called when the class is added to a GameScreen instance.
      */
@@ -100,19 +161,55 @@ public class GameWorld implements GameWorldRenderer {
     }
 
     /**
-     * Physics are simulated at this delta time or better.
+     * Same as {@link #intersectRay(Ray, GameEntity)}, but the result is in the query, and it can be called from
+     * different threads with different queries.
+     */
+    public RayIntersection intersectRay(Ray ray, GameEntity ignore, Octree.RayQuery query) {
+        float t = terrain.intersectRay(ray, query.gridRayIt);
+        query.result.reset();
+        if (t < Float.POSITIVE_INFINITY) query.result.setTerrain(t);
+        return octree.intersectRay(ray, ignore, query);
+    }
+
+    public static final int DEFAULT_TICK_RATE = 60;
+    /**
+     * At most this many ticks are simulated in a frame. The rest of a long frame is dropped and the game slows down
+     * instead of spending even more time to catch up.
+     */
+    public static final int MAX_CATCH_UP_TICKS = 8;
+    /**
+     * Physics are always simulated with this delta time, regardless of the frame rate.
      */
-    public static final float MAX_DELTA = 1/60.0f;
-    public static final float MIN_DELTA = 1/1000.0f;
-    public static final float DELTA_LIMIT = 4/30.0f;
+    public float tickDelta = 1f / DEFAULT_TICK_RATE;
     public float accumulatedDelta = 0.0f;
+    /**
+     * Fraction of a tick left in {@link #accumulatedDelta} after the last update. Entities and the camera are drawn
+     * this far between their positions in the last two ticks.
+     */
+    public float alpha = 0f;
 
     public static final float STAT_PERIOD = 1f;
     private float statTimer = 0f;
 
+    /**
+     * Lighting and fog of all levels. Impostors are baked with the same lighting.
+     */
+    public static void setLevelLighting(Environment environment) {
+        environment.set(new ColorAttribute(ColorAttribute.AmbientLight, 0.2f, 0.25f, 0.2f, 1f));
+        environment.set(new ColorAttribute(ColorAttribute.Fog, 0.38f, 0.55f, 0.42f, 1f));
+        environment.add(new DirectionalLight().set(0.6f, 0.6f, 0.6f, -1f, -0.8f, -0.2f));
+    }
+
     public void gameUpdate(float dt) {
+        lineOfSight.beginTick();
+        if (navigationGrid == null) navigationGrid = new NavigationGrid(terrain);
+        navigationGrid.update(this);
+        if (player != null) {
+            if (flowField == null) flowField = new FlowField(navigationGrid);
+            flowField.update(player.hitBox.position);
+        }
         octree.update(dt);
-        decalPool.update(cam, dt);
+        decalPool.update(dt);
         if (scriptedEvent != null && scriptedEvent.update(dt)) {
             scriptedEvent = null;
         }
@@ -125,18 +222,33 @@ public class GameWorld implements GameWorldRenderer {
         }
     }
 
+    public void setTickRate(int ticksPerSecond) {
+        tickDelta = 1f / MathUtils.clamp(ticksPerSecond, 10, 240);
+        accumulatedDelta = Math.min(accumulatedDelta, tickDelta);
+    }
+
     public void update(float delta) {
         if (paused) return;
-        delta = Math.min(DELTA_LIMIT, delta);
+        hitchMonitor.record(delta);
+        if (player != null) player.pollInput(delta);
+        aiScheduler.beginFrame();
+        lineOfSight.beginFrame();
         accumulatedDelta += delta;
-        while (accumulatedDelta > MIN_DELTA) {
-            float dt = Math.min(accumulatedDelta, MAX_DELTA);
-
-            gameUpdate(dt);
+        int ticks = 0;
+        while (accumulatedDelta >= tickDelta) {
+            if (ticks == MAX_CATCH_UP_TICKS) {
+                accumulatedDelta %= tickDelta;
+                break;
+            }
+            octree.savePreviousState();
+            gameUpdate(tickDelta);
 
-            accumulatedDelta -= dt;
-            time += dt;
+            accumulatedDelta -= tickDelta;
+            time += tickDelta;
+            ticks++;
         }
+        alpha = accumulatedDelta / tickDelta;
+        octree.present(alpha);
     }
 
     public void render() {
@@ -148,26 +260,50 @@ public class GameWorld implements GameWorldRenderer {
 
         modelBatch.begin(cam);
 
+        frameIndex++;
         visibleCount = 0;
 //        player.renderViewModel(this);
 
+        // Terrain first so that it occludes the rest in the depth test.
+        terrain.render(cam, modelBatch.getRenderContext());
+        occlusionCuller.begin(cam, terrain, viewDistance);
         octree.render(this);
+        occlusionCuller.submitCandidates(this);
         octree.renderEntities(this);
-        terrain.render(cam, modelBatch.getRenderContext());
-        decalPool.render(this);
+        // Opaque pass
+        modelBatch.flushOpaque();
+        propRenderer.renderOpaque(cam, environment, modelBatch.getRenderContext());
+        skinnedRenderer.render(cam, environment, modelBatch.getRenderContext());
+        // Blended pass
+        propRenderer.renderBlended(cam, modelBatch.getRenderContext());
+        decalPool.render(cam, modelBatch.getRenderContext());
         modelBatch.end();
 
         decalBatch.flush();
     }
 
+    /**
+     * Render the view model into an empty frame buffer, to be composited over the world.
+     */
     public void renderViewModel() {
         ScreenUtils.clear(0f, 0f, 0f, 0.0f, true);
+        drawViewModel();
+    }
+
+    /**
+     * Render the view model over the world in the same frame buffer. Only the depth buffer is cleared.
+     */
+    public void renderViewModelOver() {
+        Gdx.gl.glDepthMask(true);
+        Gdx.gl.glClear(GL20.GL_DEPTH_BUFFER_BIT);
+        drawViewModel();
+    }
 
+    private void drawViewModel() {
         modelBatch.begin(cam);
         if (player != null) {
             player.renderViewModel(this);
         }
-        decalPool.render(this);
         modelBatch.end();
         decalBatch.flush();
     }
@@ -176,6 +312,11 @@ public class GameWorld implements GameWorldRenderer {
 //        viewport.update(width, height, true);
     }
 
+    @Override
+    public void setFrozen(boolean frozen, boolean blur, float dim) {
+        // Rendered directly to the screen, so there is no frame to keep.
+    }
+
     public void generateForest(Terrain.CircleAreas spawnPoints, int trees, float margin) {
         int i;
         i = spawnPoints.circles.size;
@@ -183,7 +324,7 @@ public class GameWorld implements GameWorldRenderer {
         System.out.println("Generated: " + (spawnPoints.circles.size - i) + "/200");
         for (; i < spawnPoints.circles.size; ++i) {
             TreeObject tree = Main.assets.createTree();
-            tree.model.transform
+            tree.transform
                     .translate(spawnPoints.getCenterOnTerrain(i))
                     .rotate(Vector3.Y, MathUtils.random(360));
             octree.add(tree);
@@ -236,11 +377,19 @@ public class GameWorld implements GameWorldRenderer {
 
     @Override
     public void dispose() {
+        if (screen != null) {
+            StringBuilder stringBuilder = new StringBuilder(Main.warmup ? "With warmup: " : "Without warmup: ");
+            hitchMonitor.buildText(stringBuilder);
+            Gdx.app.log("GameWorld", stringBuilder.toString());
+        }
         octree.clear();
         octree.clearEntities();
         terrain.dispose();
-        decalBatch.dispose();
-        modelBatch.dispose();
+        Main.gpuCache.release(decalBatch);
+        decalPool.dispose();
+        propRenderer.dispose();
+        skinnedRenderer.dispose();
+        Main.gpuCache.release(modelBatch);
     }
 
     /* Sounds */
@@ -270,6 +419,18 @@ public class GameWorld implements GameWorldRenderer {
     public void buildHudText(StringBuilder stringBuilder) {
         if (player != null) player.buildHudText(stringBuilder);
         if (objective != null) objective.buildHudText(stringBuilder);
+        if (Main.debugMode) {
+            hitchMonitor.buildText(stringBuilder);
+            stringBuilder.append('\n');
+            aiScheduler.buildText(stringBuilder);
+            stringBuilder.append('\n');
+            lineOfSight.buildText(stringBuilder);
+            stringBuilder.append('\n');
+            if (flowField != null) {
+                flowField.buildText(stringBuilder);
+                stringBuilder.append('\n');
+            }
+        }
     }
 
     /* Cutscenes */
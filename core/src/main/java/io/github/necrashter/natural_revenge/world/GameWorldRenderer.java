@@ -5,4 +5,11 @@ import com.badlogic.gdx.utils.Disposable;
 public interface GameWorldRenderer extends Disposable {
     void render();
     void screenResize(int width, int height);
+
+    /**
+     * While frozen, the last frame is presented again instead of rendering the world.
+     * @param blur Blur the frozen frame.
+     * @param dim Brightness of the frozen frame, 1 to keep it unchanged.
+     */
+    void setFrozen(boolean frozen, boolean blur, float dim);
 }
@@ -0,0 +1,108 @@
+package io.github.necrashter.natural_revenge.world;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+import io.github.necrashter.natural_revenge.world.entities.GameEntity;
+
+/**
+ * Remembers whether NPCs could see their targets, so that the ray is not cast again in every tick.
+ * <p>
+ * A result expires after an interval that grows with the distance, shrinks with the relative speed of the two, and is
+ * slightly randomised so that the checks of a wave spread over the ticks. It's also discarded if either of them moved
+ * more than {@link #MOVE_TOLERANCE} since. When a result is needed outside of sensing and the rays of the tick are
+ * used up, the expired result is used until the next tick. Rays cast while sensing don't count against
+ * {@link #raysPerTick}, since they run in parallel before the tick.
+ */
+public class LineOfSight {
+    public static final float MIN_INTERVAL = 0.05f;
+    public static final float MAX_INTERVAL = 0.5f;
+    public static final float INTERVAL_PER_METER = 0.02f;
+    public static final float MOVE_TOLERANCE = 0.5f;
+
+    private static final Vector3 temp = new Vector3();
+
+    /**
+     * Cached result of one NPC.
+     */
+    public static class Entry {
+        public GameEntity target = null;
+        public boolean visible = false;
+        private float expiry = 0f;
+        private final Vector3 from = new Vector3();
+        private final Vector3 to = new Vector3();
+
+        /**
+         * Only reads, so it can be called while sensing.
+         */
+        public boolean isFresh(GameEntity viewer, GameEntity target, float time) {
+            return this.target == target && time < expiry
+                    && from.dst2(viewer.hitBox.position) < MOVE_TOLERANCE * MOVE_TOLERANCE
+                    && to.dst2(target.hitBox.position) < MOVE_TOLERANCE * MOVE_TOLERANCE;
+        }
+
+        public void clear() {
+            target = null;
+        }
+    }
+
+    public int raysPerTick = 8;
+    private int raysLeft;
+    /**
+     * Statistics of the current frame.
+     */
+    public int casts, sensedCasts, cacheHits;
+
+    public void beginFrame() {
+        casts = 0;
+        sensedCasts = 0;
+        cacheHits = 0;
+    }
+
+    public void beginTick() {
+        raysLeft = raysPerTick;
+    }
+
+    /**
+     * @return True if another ray can be cast in this tick.
+     */
+    public boolean tryCast() {
+        return raysLeft > 0;
+    }
+
+    /**
+     * Store the result of a ray that was just cast in the tick, which uses one of the rays of the tick.
+     */
+    public void storeCast(Entry entry, GameEntity viewer, GameEntity target, boolean visible, float time) {
+        casts++;
+        raysLeft--;
+        store(entry, viewer, target, visible, time);
+    }
+
+    /**
+     * Store the result of a ray that was cast while sensing.
+     */
+    public void storeSensed(Entry entry, GameEntity viewer, GameEntity target, boolean visible, float time) {
+        sensedCasts++;
+        store(entry, viewer, target, visible, time);
+    }
+
+    private void store(Entry entry, GameEntity viewer, GameEntity target, boolean visible, float time) {
+        entry.target = target;
+        entry.visible = visible;
+        entry.from.set(viewer.hitBox.position);
+        entry.to.set(target.hitBox.position);
+        float interval = MathUtils.clamp(MIN_INTERVAL + entry.from.dst(entry.to) * INTERVAL_PER_METER,
+                MIN_INTERVAL, MAX_INTERVAL);
+        float relativeSpeed = temp.set(target.hitBox.velocity).add(target.movement)
+                .sub(viewer.hitBox.velocity).sub(viewer.movement).len();
+        if (relativeSpeed > 0f) {
+            interval = Math.max(MIN_INTERVAL, Math.min(interval, MOVE_TOLERANCE / relativeSpeed));
+        }
+        entry.expiry = time + interval * MathUtils.random(0.8f, 1.2f);
+    }
+
+    public void buildText(StringBuilder stringBuilder) {
+        stringBuilder.append("Sight rays: ").append(casts).append(", sensed: ").append(sensedCasts)
+                .append(", cached: ").append(cacheHits);
+    }
+}
@@ -1,57 +1,255 @@
 package io.github.necrashter.natural_revenge.world;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import io.github.necrashter.natural_revenge.Main;
+import io.github.necrashter.natural_revenge.world.render.DynamicResolution;
 
 public class LowResWorldRenderer implements GameWorldRenderer {
     public GameWorld world;
 
-    //    public int resolutionX = 1280/2;
-//    public int resolutionY = 720/2;
-    private int resolutionX = 1280;
-    private int resolutionY = 720;
-    FrameBuffer worldFrameBuffer, viewFrameBuffer;
-    SpriteBatch spriteBatch = new SpriteBatch();
+    public enum ViewModelMode {
+        /**
+         * View model is drawn over the world in the same frame buffer, after clearing only the depth.
+         */
+        SAME_BUFFER,
+        /**
+         * View model is drawn into its own frame buffer at {@link #viewModelScale} and blended over the world.
+         * Costs a second frame buffer and a second full screen blit.
+         */
+        SEPARATE_BUFFER,
+    }
+
+    public ViewModelMode viewModelMode = ViewModelMode.SAME_BUFFER;
+    /**
+     * Fixed resolution scale of the view model in {@link ViewModelMode#SEPARATE_BUFFER}.
+     */
+    public float viewModelScale = 1f;
+
+    /**
+     * Internal resolution at scale 1.
+     */
+    public static final int BASE_RESOLUTION_X = 1280;
+    public static final int BASE_RESOLUTION_Y = 720;
+    /**
+     * Frame buffers are allocated for the largest scale, lower scales render into a part of them.
+     */
+    private int bufferWidth, bufferHeight;
+    private int resolutionX = BASE_RESOLUTION_X;
+    private int resolutionY = BASE_RESOLUTION_Y;
+    FrameBuffer worldFrameBuffer;
+    /**
+     * Only allocated in {@link ViewModelMode#SEPARATE_BUFFER}.
+     */
+    FrameBuffer viewFrameBuffer = null;
+    SpriteBatch spriteBatch = Main.gpuCache.acquireSpriteBatch();
     Camera camera;
     Viewport viewport;
+    public final DynamicResolution dynamicResolution;
+    private int screenHeight;
 
     private float renderX, renderY, renderWidth, renderHeight;
+    /**
+     * Part of the world frame buffer that has the last frame.
+     */
+    private float u2 = 1f, v2 = 1f;
+    private boolean hasFrame = false;
+
+    /**
+     * The blurred frame is rendered into a frame buffer this many times smaller than the internal resolution, and
+     * stretched back with linear filtering.
+     */
+    public static final int BLUR_DOWNSAMPLE = 4;
+    private boolean frozen = false, frozenBlur = false;
+    private float frozenDim = 1f;
+    /**
+     * Only allocated while frozen with blur.
+     */
+    private FrameBuffer blurFrameBuffer = null;
+    private final Matrix4 blurProjection = new Matrix4();
+    /**
+     * Upper limit on the scale, regardless of the preferences.
+     */
+    private final float scaleLimit;
 
     public LowResWorldRenderer(GameWorld world) {
+        this(world, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @param scaleLimit Upper limit on the resolution scale, e.g. for backgrounds that don't need full resolution.
+     */
+    public LowResWorldRenderer(GameWorld world, float scaleLimit) {
         this.world = world;
+        this.scaleLimit = scaleLimit;
 
-        worldFrameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, resolutionX, resolutionY, true);
-        worldFrameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
-        viewFrameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, resolutionX, resolutionY, true);
-        viewFrameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        dynamicResolution = new DynamicResolution(getMinScale(), Main.maxResolutionScale);
+        screenHeight = Gdx.graphics.getBackBufferHeight();
+        allocateFrameBuffers();
 
-        camera = new OrthographicCamera(resolutionX, resolutionY);
-        viewport = new StretchViewport(resolutionX, resolutionY);
+        camera = new OrthographicCamera(BASE_RESOLUTION_X, BASE_RESOLUTION_Y);
+        viewport = new StretchViewport(BASE_RESOLUTION_X, BASE_RESOLUTION_Y);
 //        viewport = new FitViewport(resolutionX, resolutionY, camera);
 //        viewport = new ScreenViewport();
 
-        renderX = -resolutionX / 2.0f;
-        renderY = -resolutionY / 2.0f;
-        renderWidth = resolutionX;
-        renderHeight = resolutionY;
+        renderX = -BASE_RESOLUTION_X / 2.0f;
+        renderY = -BASE_RESOLUTION_Y / 2.0f;
+        renderWidth = BASE_RESOLUTION_X;
+        renderHeight = BASE_RESOLUTION_Y;
+    }
+
+    private float getMinScale() {
+        return Math.min(Main.minResolutionScale, scaleLimit);
+    }
+
+    /**
+     * Largest scale that is useful on this screen, since the result is stretched to the screen.
+     */
+    private float getEffectiveMaxScale() {
+        float screenScale = MathUtils.ceil((float) screenHeight / BASE_RESOLUTION_Y / DynamicResolution.STEP)
+                * DynamicResolution.STEP;
+        return Math.max(getMinScale(), Math.min(Math.min(Main.maxResolutionScale, scaleLimit), screenScale));
+    }
+
+    /**
+     * (Re)allocate the frame buffers if the largest scale has changed. Not needed when only the scale changes.
+     */
+    private void allocateFrameBuffers() {
+        dynamicResolution.setRange(getMinScale(), getEffectiveMaxScale());
+        int width = MathUtils.round(BASE_RESOLUTION_X * dynamicResolution.getMaxScale());
+        int height = MathUtils.round(BASE_RESOLUTION_Y * dynamicResolution.getMaxScale());
+        if (worldFrameBuffer != null && width == bufferWidth && height == bufferHeight) return;
+        Main.gpuCache.release(worldFrameBuffer);
+        bufferWidth = width;
+        bufferHeight = height;
+        worldFrameBuffer = Main.gpuCache.acquireFrameBuffer(Pixmap.Format.RGBA8888, bufferWidth, bufferHeight, true);
+        worldFrameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+    }
+
+    /**
+     * (Re)allocate the view model frame buffer for {@link ViewModelMode#SEPARATE_BUFFER}.
+     */
+    private void allocateViewFrameBuffer() {
+        int width = MathUtils.round(BASE_RESOLUTION_X * viewModelScale);
+        int height = MathUtils.round(BASE_RESOLUTION_Y * viewModelScale);
+        if (viewFrameBuffer != null) {
+            if (viewFrameBuffer.getWidth() == width && viewFrameBuffer.getHeight() == height) return;
+            Main.gpuCache.release(viewFrameBuffer);
+        }
+        viewFrameBuffer = Main.gpuCache.acquireFrameBuffer(Pixmap.Format.RGBA8888, width, height, true);
+        viewFrameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+    }
+
+    public int getResolutionX() {
+        return resolutionX;
+    }
+
+    public int getResolutionY() {
+        return resolutionY;
+    }
+
+    @Override
+    public void setFrozen(boolean frozen, boolean blur, float dim) {
+        this.frozen = frozen;
+        frozenDim = dim;
+        if (!frozen || frozenBlur != blur) {
+            Main.gpuCache.release(blurFrameBuffer);
+            blurFrameBuffer = null;
+        }
+        frozenBlur = blur;
+    }
+
+    /**
+     * Downsample the last frame into {@link #blurFrameBuffer}, only once per freeze.
+     */
+    private void captureBlur() {
+        if (blurFrameBuffer != null) return;
+        int width = Math.max(1, resolutionX / BLUR_DOWNSAMPLE);
+        int height = Math.max(1, resolutionY / BLUR_DOWNSAMPLE);
+        blurFrameBuffer = Main.gpuCache.acquireFrameBuffer(Pixmap.Format.RGBA8888, width, height, false);
+        blurFrameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        worldFrameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        blurFrameBuffer.begin();
+        ScreenUtils.clear(0, 0, 0, 1);
+        spriteBatch.setProjectionMatrix(blurProjection.setToOrtho2D(0, 0, width, height));
+        spriteBatch.begin();
+        drawFrame(0, 0, width, height);
+        spriteBatch.end();
+        blurFrameBuffer.end();
+        worldFrameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+    }
+
+    private void drawFrame(float x, float y, float width, float height) {
+        spriteBatch.draw(worldFrameBuffer.getColorBufferTexture(), x, y, width, height, 0, 0, u2, v2);
+        if (viewFrameBuffer != null) {
+            spriteBatch.draw(viewFrameBuffer.getColorBufferTexture(), x, y, width, height, 0, 0, 1, 1);
+        }
+    }
+
+    /**
+     * Present the last frame again without rendering the world.
+     */
+    private void renderFrozen() {
+        if (frozenBlur) captureBlur();
+        viewport.apply(true);
+        ScreenUtils.clear(0, 0, 0, 1, true);
+        spriteBatch.setProjectionMatrix(camera.combined);
+        spriteBatch.setColor(frozenDim, frozenDim, frozenDim, 1f);
+        spriteBatch.begin();
+        if (blurFrameBuffer != null) {
+            spriteBatch.draw(blurFrameBuffer.getColorBufferTexture(), renderX, renderY, renderWidth, renderHeight, 0, 0, 1, 1);
+        } else {
+            drawFrame(renderX, renderY, renderWidth, renderHeight);
+        }
+        spriteBatch.end();
+        spriteBatch.setColor(1f, 1f, 1f, 1f);
     }
 
     @Override
     public void render() {
+        if (frozen && hasFrame) {
+            renderFrozen();
+            return;
+        }
+        if (dynamicResolution.getMinScale() != getMinScale()
+                || dynamicResolution.getMaxScale() != getEffectiveMaxScale()) {
+            allocateFrameBuffers();
+        }
+        dynamicResolution.update(Gdx.graphics.getDeltaTime());
+        resolutionX = Math.min(bufferWidth, MathUtils.round(BASE_RESOLUTION_X * dynamicResolution.getScale()));
+        resolutionY = Math.min(bufferHeight, MathUtils.round(BASE_RESOLUTION_Y * dynamicResolution.getScale()));
+        // Part of the frame buffers that is rendered to.
+        u2 = (float) resolutionX / bufferWidth;
+        v2 = (float) resolutionY / bufferHeight;
+        hasFrame = true;
+
         worldFrameBuffer.begin();
+        Gdx.gl.glViewport(0, 0, resolutionX, resolutionY);
         world.render();
+        if (viewModelMode == ViewModelMode.SAME_BUFFER) {
+            world.renderViewModelOver();
+        }
         worldFrameBuffer.end();
 
-        viewFrameBuffer.begin();
-        world.renderViewModel();
-        viewFrameBuffer.end();
+        if (viewModelMode == ViewModelMode.SEPARATE_BUFFER) {
+            allocateViewFrameBuffer();
+            viewFrameBuffer.begin();
+            world.renderViewModel();
+            viewFrameBuffer.end();
+        } else if (viewFrameBuffer != null) {
+            Main.gpuCache.release(viewFrameBuffer);
+            viewFrameBuffer = null;
+        }
 
         viewport.apply(true);
         ScreenUtils.clear(0, 0, 0, 1, true);
@@ -63,8 +261,7 @@ public class LowResWorldRenderer implements GameWorldRenderer {
 //        Gdx.gl.glViewport(0, 0, Gdx.graphics.getBackBufferWidth(), Gdx.graphics.getBackBufferHeight());
         spriteBatch.setProjectionMatrix(camera.combined);
         spriteBatch.begin();
-        spriteBatch.draw(worldFrameBuffer.getColorBufferTexture(), renderX, renderY, renderWidth, renderHeight, 0, 0, 1, 1);
-        spriteBatch.draw(viewFrameBuffer.getColorBufferTexture(), renderX, renderY, renderWidth, renderHeight, 0, 0, 1, 1);
+        drawFrame(renderX, renderY, renderWidth, renderHeight);
 //        spriteBatch.draw(fbo.getColorBufferTexture(), 0, 0, resolutionX, resolutionY, 0, 0, 1, 1);
 //        spriteBatch.draw(fbo.getColorBufferTexture(), 0, 0, resolutionX*2, resolutionY*2, 0, 0, 1, 1);
 //        spriteBatch.draw(fbo.getColorBufferTexture(), 0, 0, viewport.getScreenWidth(), viewport.getScreenHeight(), 0, 0, 1, 1);
@@ -76,13 +273,16 @@ public class LowResWorldRenderer implements GameWorldRenderer {
     @Override
     public void screenResize(int width, int height) {
         viewport.update(width, height, true);
+        screenHeight = Gdx.graphics.getBackBufferHeight();
         world.screenResize(resolutionX, resolutionY);
     }
 
     @Override
     public void dispose() {
-        worldFrameBuffer.dispose();
-        viewFrameBuffer.dispose();
+        Main.gpuCache.release(spriteBatch);
+        Main.gpuCache.release(worldFrameBuffer);
+        Main.gpuCache.release(viewFrameBuffer);
+        Main.gpuCache.release(blurFrameBuffer);
         world.dispose();
     }
 }
@@ -0,0 +1,145 @@
+package io.github.necrashter.natural_revenge.world;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import io.github.necrashter.natural_revenge.world.geom.CharHitBox;
+import io.github.necrashter.natural_revenge.world.objects.StaticGameObject;
+
+/**
+ * Grid over the terrain that marks the cells NPCs cannot walk through, and the cells near obstacles.
+ * <p>
+ * For the flow field, the physics shapes of the objects are enlarged by the radius of an NPC, so that a free cell
+ * center is a position that an NPC can stand on. For {@link #isFree}, a cell is occupied if it's closer than
+ * {@link #OCCUPANCY_MARGIN} to any physics shape, so that an entity in any other cell cannot touch one. The grid is
+ * built again when {@link Octree#obstacleRevision} changes.
+ */
+public class NavigationGrid {
+    public static final float CELL_SIZE = 1f;
+    /**
+     * Radius of the NPCs that use the grid.
+     */
+    public static final float AGENT_RADIUS = 0.4f;
+    /**
+     * Objects whose physics shape starts higher than this above the terrain don't block the way.
+     */
+    public static final float MAX_CLEARANCE = 1.5f;
+    /**
+     * Entities with a larger radius always take the exact move check.
+     */
+    public static final float OCCUPANCY_MARGIN = 1f;
+
+    private static final Vector3 min = new Vector3();
+    private static final Vector3 max = new Vector3();
+
+    public final Terrain terrain;
+    public final int cellsX, cellsZ;
+    private final boolean[] blocked;
+    private final boolean[] occupied;
+    private int obstacleRevision = -1;
+    /**
+     * Incremented each time the grid is built.
+     */
+    public int revision = 0;
+
+    public NavigationGrid(Terrain terrain) {
+        this.terrain = terrain;
+        cellsX = Math.max(1, MathUtils.ceil(terrain.width / CELL_SIZE));
+        cellsZ = Math.max(1, MathUtils.ceil(terrain.height / CELL_SIZE));
+        blocked = new boolean[cellsX * cellsZ];
+        occupied = new boolean[cellsX * cellsZ];
+    }
+
+    /**
+     * Build the grid if the obstacles have changed since it was last built.
+     */
+    public void update(GameWorld world) {
+        if (obstacleRevision == world.octree.obstacleRevision) return;
+        obstacleRevision = world.octree.obstacleRevision;
+        for (int i = 0; i < blocked.length; ++i) {
+            blocked[i] = false;
+            occupied[i] = false;
+        }
+        // Falling trees are dynamic, but they are obstacles until they are removed.
+        addObstacles(world.octree.staticObjects);
+        addObstacles(world.octree.dynamicObjects);
+        revision++;
+    }
+
+    private void addObstacles(Array<GameObject> objects) {
+        for (GameObject object : objects) {
+            if (!object.isObstacle() || !(object instanceof StaticGameObject)) continue;
+            StaticGameObject staticObject = (StaticGameObject) object;
+            staticObject.physicsShape.getMinPoint(staticObject.transform, min);
+            staticObject.physicsShape.getMaxPoint(staticObject.transform, max);
+
+            // A cell is occupied if any part of it is in the footprint enlarged by the margin.
+            int x0 = Math.max(0, MathUtils.floor(toGridX(min.x - OCCUPANCY_MARGIN)));
+            int x1 = Math.min(cellsX - 1, MathUtils.floor(toGridX(max.x + OCCUPANCY_MARGIN)));
+            int z0 = Math.max(0, MathUtils.floor(toGridZ(min.z - OCCUPANCY_MARGIN)));
+            int z1 = Math.min(cellsZ - 1, MathUtils.floor(toGridZ(max.z + OCCUPANCY_MARGIN)));
+            fill(occupied, x0, x1, z0, z1);
+
+            float centerX = (min.x + max.x) * 0.5f, centerZ = (min.z + max.z) * 0.5f;
+            if (min.y > terrain.getHeight(centerX, centerZ) + MAX_CLEARANCE) continue;
+            // A cell is blocked if its center is in the footprint enlarged by the agent radius.
+            x0 = Math.max(0, MathUtils.ceil(toGridX(min.x - AGENT_RADIUS) - 0.5f));
+            x1 = Math.min(cellsX - 1, MathUtils.floor(toGridX(max.x + AGENT_RADIUS) - 0.5f));
+            z0 = Math.max(0, MathUtils.ceil(toGridZ(min.z - AGENT_RADIUS) - 0.5f));
+            z1 = Math.min(cellsZ - 1, MathUtils.floor(toGridZ(max.z + AGENT_RADIUS) - 0.5f));
+            fill(blocked, x0, x1, z0, z1);
+        }
+    }
+
+    private void fill(boolean[] cells, int x0, int x1, int z0, int z1) {
+        for (int z = z0; z <= z1; ++z) {
+            for (int x = x0; x <= x1; ++x) {
+                cells[x + z * cellsX] = true;
+            }
+        }
+    }
+
+    private float toGridX(float x) {
+        return (x + terrain.halfWidth) / CELL_SIZE;
+    }
+
+    private float toGridZ(float z) {
+        return (z + terrain.halfHeight) / CELL_SIZE;
+    }
+
+    /**
+     * @return Index of the cell that contains the point, or -1 if it's outside the grid.
+     */
+    public int getCell(float x, float z) {
+        int cx = MathUtils.floor(toGridX(x));
+        int cz = MathUtils.floor(toGridZ(z));
+        if (cx < 0 || cx >= cellsX || cz < 0 || cz >= cellsZ) return -1;
+        return cx + cz * cellsX;
+    }
+
+    public float getCenterX(int cell) {
+        return ((cell % cellsX) + 0.5f) * CELL_SIZE - terrain.halfWidth;
+    }
+
+    public float getCenterZ(int cell) {
+        return ((cell / cellsX) + 0.5f) * CELL_SIZE - terrain.halfHeight;
+    }
+
+    public boolean isBlocked(int cell) {
+        return blocked[cell];
+    }
+
+    /**
+     * @return True if the hit box cannot touch the physics shape of any object, so that the exact move check can be
+     * skipped. Only valid after the grid is built in the current tick.
+     */
+    public boolean isFree(CharHitBox hitBox) {
+        if (revision == 0 || hitBox.radius > OCCUPANCY_MARGIN) return false;
+        int cell = getCell(hitBox.position.x, hitBox.position.z);
+        return cell != -1 && !occupied[cell];
+    }
+
+    public int getCellCount() {
+        return blocked.length;
+    }
+}
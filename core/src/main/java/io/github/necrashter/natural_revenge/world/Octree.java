@@ -4,8 +4,12 @@ import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.math.collision.Ray;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import io.github.necrashter.natural_revenge.Main;
+import io.github.necrashter.natural_revenge.TaskRunner;
 import io.github.necrashter.natural_revenge.world.entities.GameEntity;
 import io.github.necrashter.natural_revenge.world.geom.CharHitBox;
+import io.github.necrashter.natural_revenge.world.geom.GridRayIt;
 import io.github.necrashter.natural_revenge.world.geom.RayIntersection;
 
 public class Octree {
@@ -13,12 +17,35 @@ public class Octree {
     private static final Vector3 minPosTemp = new Vector3();
     private static final Vector3 maxPosTemp = new Vector3();
 
-    private static float rayDivX;
-    private static float rayDivY;
-    private static float rayDivZ;
-
-    public static RayIntersection rayIntersection = new RayIntersection();
+    public static final RayIntersection rayIntersection = new RayIntersection();
     public static GameEntity ignoredEntity = null;
+    private static final RayQuery sharedQuery = new RayQuery(rayIntersection);
+
+    /**
+     * State of a ray cast. Casts with different instances can run at the same time on different threads, as long as
+     * nothing is modified meanwhile.
+     */
+    public static class RayQuery {
+        public final RayIntersection result;
+        public final GridRayIt gridRayIt = new GridRayIt();
+        GameEntity ignoredEntity;
+        float divX, divY, divZ;
+
+        public RayQuery() {
+            this(new RayIntersection());
+        }
+
+        RayQuery(RayIntersection result) {
+            this.result = result;
+        }
+
+        void prepare(Ray ray, GameEntity ignore) {
+            ignoredEntity = ignore;
+            divX = 1f / ray.direction.x;
+            divY = 1f / ray.direction.y;
+            divZ = 1f / ray.direction.z;
+        }
+    }
 
     /**
      * Split octree node when it contains more than this many elements;
@@ -116,25 +143,25 @@ public class Octree {
             }
         }
 
-        public boolean checkRay(Ray ray) {
-            float minx = ((center.x - size) - ray.origin.x) * rayDivX;
-            float maxx = ((center.x + size) - ray.origin.x) * rayDivX;
+        public boolean checkRay(Ray ray, RayQuery query) {
+            float minx = ((center.x - size) - ray.origin.x) * query.divX;
+            float maxx = ((center.x + size) - ray.origin.x) * query.divX;
             if (minx > maxx) {
                 final float t = minx;
                 minx = maxx;
                 maxx = t;
             }
 
-            float miny = ((center.y - size) - ray.origin.y) * rayDivY;
-            float maxy = ((center.y + size) - ray.origin.y) * rayDivY;
+            float miny = ((center.y - size) - ray.origin.y) * query.divY;
+            float maxy = ((center.y + size) - ray.origin.y) * query.divY;
             if (miny > maxy) {
                 final float t = miny;
                 miny = maxy;
                 maxy = t;
             }
 
-            float minz = ((center.z - size) - ray.origin.z) * rayDivZ;
-            float maxz = ((center.z + size) - ray.origin.z) * rayDivZ;
+            float minz = ((center.z - size) - ray.origin.z) * query.divZ;
+            float maxz = ((center.z + size) - ray.origin.z) * query.divZ;
             if (minz > maxz) {
                 final float t = minz;
                 minz = maxz;
@@ -144,11 +171,11 @@ public class Octree {
             float min = Math.max(Math.max(minx, miny), minz);
             float max = Math.min(Math.min(maxx, maxy), maxz);
 
-            return max >= 0 && max >= min && min < rayIntersection.t;
+            return max >= 0 && max >= min && min < query.result.t;
         }
 
-        public boolean intersectRay(Ray ray) {
-            if (!checkRay(ray))
+        public boolean intersectRay(Ray ray, RayQuery query) {
+            if (!checkRay(ray, query))
                 return false;
 
             boolean intersected = false;
@@ -157,26 +184,26 @@ public class Octree {
                 final GameObject object = objects.get(i);
 
                 float t = object.intersectsGetRayT(ray);
-                if (t < rayIntersection.t) {
-                    rayIntersection.setTarget(t, object);
+                if (t < query.result.t) {
+                    query.result.setTarget(t, object);
                     intersected = true;
                 }
             }
 
             for (int i = 0; i < entities.size; ++i) {
                 final GameEntity entity = entities.get(i);
-                if (entity == ignoredEntity) continue;
+                if (entity == query.ignoredEntity) continue;
 
                 float t = entity.hitBox.intersectRay(ray);
-                if (t < rayIntersection.t) {
-                    rayIntersection.setTarget(t, entity);
+                if (t < query.result.t) {
+                    query.result.setTarget(t, entity);
                     intersected = true;
                 }
             }
 
             if (children != null) {
                 for (int i = 0; i < 8; ++i) {
-                    boolean out = children[i].intersectRay(ray);
+                    boolean out = children[i].intersectRay(ray, query);
                     intersected = intersected || out;
                 }
             }
@@ -260,8 +287,9 @@ public class Octree {
         public void collide(GameEntity entity, Vector3 minPos, Vector3 maxPos) {
             if (!intersects(entity.hitBox)) return;
 
-            for (final GameObject object: objects) {
-                object.hit(entity);
+            for (int i = 0; i < objects.size; ++i) {
+                final GameObject object = objects.get(i);
+                if (!object.removalPending) object.hit(entity);
             }
 
             if (children != null) {
@@ -335,9 +363,7 @@ public class Octree {
         }
 
         public void updateEntity(GameEntity entity) {
-            entity.hitBox.getMinPoint(minPosTemp);
-            entity.hitBox.getMaxPoint(maxPosTemp);
-            updateEntity(entity, minPosTemp, maxPosTemp);
+            updateEntity(entity, entity.hitBox.getBoundsMin(), entity.hitBox.getBoundsMax());
         }
 
         public void updateEntity(GameEntity entity, Vector3 minPos, Vector3 maxPos) {
@@ -429,6 +455,17 @@ public class Octree {
             }
         }
 
+        public void query(Vector3 minPos, Vector3 maxPos, Array<GameEntity> entitiesOut, Array<GameObject> objectsOut) {
+            if (!intersectsBounds(minPos, maxPos)) return;
+            if (entitiesOut != null) entitiesOut.addAll(entities);
+            if (objectsOut != null) objectsOut.addAll(objects);
+            if (children != null) {
+                for (int i = 0; i < 8; ++i) {
+                    children[i].query(minPos, maxPos, entitiesOut, objectsOut);
+                }
+            }
+        }
+
         public void getClosestEntity(GameEntity source, Vector3 minPos, Vector3 maxPos, GameEntity.FilterFunction f) {
             if (!intersectsBounds(minPos, maxPos)) return;
 
@@ -487,32 +524,131 @@ public class Octree {
      */
     public Array<GameObject> dynamicObjects = new Array<>();
     public Array<GameObject> staticObjects = new Array<>();
+    /**
+     * Incremented when an object that {@link GameObject#isObstacle()} is added or removed.
+     */
+    public int obstacleRevision = 0;
+
+    /**
+     * Structural changes requested in {@link #update(float)} are queued and applied in order when the update is done,
+     * so that the arrays are never modified while they are iterated.
+     */
+    private static final int COMMAND_ADD = 0;
+    private static final int COMMAND_REMOVE = 1;
+    private static final int COMMAND_SORT = 2;
+    private final IntArray commandTypes = new IntArray();
+    private final Array<Object> commandTargets = new Array<>();
+    private boolean updating = false;
+
+    private void queue(int type, Object target) {
+        commandTypes.add(type);
+        commandTargets.add(target);
+    }
+
+    private void applyCommands() {
+        for (int i = 0; i < commandTypes.size; ++i) {
+            Object target = commandTargets.get(i);
+            switch (commandTypes.get(i)) {
+                case COMMAND_ADD:
+                    if (target instanceof GameEntity) addNow((GameEntity) target);
+                    else addNow((GameObject) target);
+                    break;
+                case COMMAND_REMOVE:
+                    if (target instanceof GameEntity) removeNow((GameEntity) target);
+                    else removeNow((GameObject) target);
+                    break;
+                case COMMAND_SORT:
+                    sortNow((GameObject) target);
+                    break;
+            }
+        }
+        commandTypes.clear();
+        commandTargets.clear();
+    }
 
     public void add(GameEntity entity) {
-        entity.staticCollisions();
         entity.octree = this;
+        if (updating) {
+            queue(COMMAND_ADD, entity);
+        } else {
+            addNow(entity);
+        }
+    }
+
+    private void addNow(GameEntity entity) {
+        entity.staticCollisions();
+        entity.snapToPosition();
         entities.add(entity);
-        entity.hitBox.getMinPoint(minPosTemp);
-        entity.hitBox.getMaxPoint(maxPosTemp);
-        node.addEntity(entity, minPosTemp, maxPosTemp);
+        node.addEntity(entity, entity.hitBox.getBoundsMin(), entity.hitBox.getBoundsMax());
     }
 
     public void remove(GameEntity entity) {
-        entities.removeValue(entity, true);
+        if (updating) {
+            queue(COMMAND_REMOVE, entity);
+        } else {
+            removeNow(entity);
+        }
+    }
+
+    private void removeNow(GameEntity entity) {
+        if (!entities.removeValue(entity, true)) return;
         entity.octreeNode.entities.removeValue(entity, true);
         // Only clear octree field if entity wants to be removed.
         // Otherwise, entity will add itself back to the tree.
         if (entity.onRemove(false)) entity.octree = null;
     }
 
+    /**
+     * Entities that sense in the current tick.
+     */
+    private final Array<GameEntity> sensingEntities = new Array<>();
+    private final TaskRunner.Task senseTask = new TaskRunner.Task() {
+        @Override
+        public void run(int index) {
+            sensingEntities.get(index).sense();
+        }
+    };
+
     public void update(float delta) {
-        for (final GameObject object: dynamicObjects) {
-            object.update(delta);
+        updating = true;
+        world.aiScheduler.plan(entities, world);
+        for (int i = 0; i < entities.size; ++i) {
+            GameEntity entity = entities.get(i);
+            if (entity.needsSense()) sensingEntities.add(entity);
         }
-        for (final GameEntity entity: entities) {
-            entity.update(delta);
+        if (sensingEntities.size > 0) {
+            // Nothing is modified until all entities are done sensing, so they see the same state.
+            Main.taskRunner.forEach(sensingEntities.size, senseTask);
+            sensingEntities.clear();
+        }
+        for (int i = 0; i < dynamicObjects.size; ++i) {
+            dynamicObjects.get(i).update(delta);
+        }
+        for (int i = 0; i < entities.size; ++i) {
+            entities.get(i).tick(delta);
         }
         node.entityCollisions();
+        updating = false;
+        applyCommands();
+    }
+
+    /**
+     * Called before each tick, so that entities can be interpolated between the last two ticks.
+     */
+    public void savePreviousState() {
+        for (final GameEntity entity: entities) {
+            entity.savePreviousState();
+        }
+    }
+
+    /**
+     * Prepare the entities for rendering. Called once per frame.
+     * @param alpha 0 for the previous tick, 1 for the last one.
+     */
+    public void present(float alpha) {
+        for (final GameEntity entity: entities) {
+            entity.present(alpha);
+        }
     }
 
     public void render(GameWorld world) {
@@ -525,26 +661,28 @@ public class Octree {
         }
     }
 
+    /**
+     * Continue the ray cast in {@link #rayIntersection}, ignoring {@link #ignoredEntity}.
+     */
     public RayIntersection intersectRayManual(Ray ray) {
-        rayDivX = 1f / ray.direction.x;
-        rayDivY = 1f / ray.direction.y;
-        rayDivZ = 1f / ray.direction.z;
-
-        node.intersectRay(ray);
-
+        sharedQuery.prepare(ray, ignoredEntity);
+        node.intersectRay(ray, sharedQuery);
         return rayIntersection;
     }
 
     public RayIntersection intersectRay(Ray ray, GameEntity ignore) {
         rayIntersection.reset();
         ignoredEntity = ignore;
-        rayDivX = 1f / ray.direction.x;
-        rayDivY = 1f / ray.direction.y;
-        rayDivZ = 1f / ray.direction.z;
-
-        node.intersectRay(ray);
+        return intersectRayManual(ray);
+    }
 
-        return rayIntersection;
+    /**
+     * Continue the ray cast in the result of the query. Reentrant.
+     */
+    public RayIntersection intersectRay(Ray ray, GameEntity ignore, RayQuery query) {
+        query.prepare(ray, ignore);
+        node.intersectRay(ray, query);
+        return query.result;
     }
 
     public RayIntersection intersectRay(Ray ray) {
@@ -553,6 +691,19 @@ public class Octree {
 
     public void add(GameObject object) {
         object.world = world;
+        if (updating) {
+            queue(COMMAND_ADD, object);
+        } else {
+            addNow(object);
+        }
+    }
+
+    private void addNow(GameObject object) {
+        // Removed before it was added.
+        if (object.world == null) return;
+        // The transform may have been set after the bounds were last computed.
+        object.invalidateBounds();
+        if (object.isObstacle()) obstacleRevision++;
         node.addObject(object);
         if (object.requiresUpdates) {
             dynamicObjects.add(object);
@@ -561,16 +712,68 @@ public class Octree {
         }
     }
 
+    public void remove(GameObject object) {
+        if (updating) {
+            if (object.removalPending) return;
+            object.removalPending = true;
+            queue(COMMAND_REMOVE, object);
+        } else {
+            removeNow(object);
+        }
+    }
+
+    private void removeNow(GameObject object) {
+        object.removalPending = false;
+        if (object.isObstacle() && object.world != null) obstacleRevision++;
+        if (object.octreeNode != null) {
+            object.octreeNode.objects.removeValue(object, true);
+            object.octreeNode = null;
+        }
+        // Not necessarily in the array that requiresUpdates indicates if it changed in the same update.
+        if (!dynamicObjects.removeValue(object, true)) staticObjects.removeValue(object, true);
+        object.world = null;
+    }
+
+    /**
+     * Move the object to {@link #dynamicObjects} or {@link #staticObjects} after its
+     * {@link GameObject#setRequiresUpdates(boolean)} changed.
+     */
+    void sort(GameObject object) {
+        if (updating) {
+            queue(COMMAND_SORT, object);
+        } else {
+            sortNow(object);
+        }
+    }
+
+    private void sortNow(GameObject object) {
+        if (object.world == null) return;
+        if (object.requiresUpdates) {
+            if (staticObjects.removeValue(object, true)) dynamicObjects.add(object);
+        } else {
+            if (dynamicObjects.removeValue(object, true)) staticObjects.add(object);
+        }
+    }
+
     public void collide(GameEntity entity) {
+        // Copied, since the entity is moved by the collisions.
         entity.hitBox.getMinPoint(minPosTemp);
         entity.hitBox.getMaxPoint(maxPosTemp);
         node.collide(entity, minPosTemp, maxPosTemp);
     }
 
     public boolean moveCheck(GameEntity.MoveCheck moveCheck) {
-        moveCheck.hitBox.getMinPoint(minPosTemp);
-        moveCheck.hitBox.getMaxPoint(maxPosTemp);
-        return node.moveCheck(moveCheck, minPosTemp, maxPosTemp);
+        return node.moveCheck(moveCheck, moveCheck.hitBox.getBoundsMin(), moveCheck.hitBox.getBoundsMax());
+    }
+
+    /**
+     * Collect the entities and objects in the nodes that intersect the given box.
+     * Elements in a large node may be outside the box, so the results must be checked if that matters.
+     * @param entitiesOut Entities are added here. Can be null.
+     * @param objectsOut Objects are added here. Can be null.
+     */
+    public void query(Vector3 minPos, Vector3 maxPos, Array<GameEntity> entitiesOut, Array<GameObject> objectsOut) {
+        node.query(minPos, maxPos, entitiesOut, objectsOut);
     }
 
     private static float closestDist2;
@@ -73,11 +73,11 @@ public class Terrain implements Disposable {
 
         String vert = Gdx.files.internal("shaders/terrain.vert").readString();
         String frag = Gdx.files.internal("shaders/terrain.frag").readString();
-        shader = new DefaultShader(renderable, new DefaultShader.Config(vert, frag));
+        DefaultShader.Config config = new DefaultShader.Config(vert, frag);
+        shader = Main.gpuCache.acquireDefaultShader(renderable, config, DefaultShader.createPrefix(renderable, config));
 
 //        shader = new DefaultShader(renderable);
 
-        shader.init();
     }
 
     public float randomX(float margin) {
@@ -142,6 +142,13 @@ public class Terrain implements Disposable {
      * @return Parameter t at which ray intersects terrain, or float +infinity
      */
     public float intersectRay(Ray ray) {
+        return intersectRay(ray, gridRayIt);
+    }
+
+    /**
+     * Reentrant version of {@link #intersectRay(Ray)} with its own iterator.
+     */
+    public float intersectRay(Ray ray, GridRayIt gridRayIt) {
         gridRayIt.rayStart.set(ray.origin).add(verticesWidth /2.0f, 0, verticesHeight /2.0f);
         gridRayIt.rayDir.set(ray.direction);
         gridRayIt.prepare();
@@ -259,7 +266,7 @@ public class Terrain implements Disposable {
     @Override
     public void dispose() {
         mesh.dispose();
-        shader.dispose();
+        Main.gpuCache.release(shader);
     }
 
     // Check boundary
@@ -1,68 +1,179 @@
 package io.github.necrashter.natural_revenge.world.decals;
 
 import com.badlogic.gdx.graphics.Camera;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.utils.RenderContext;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Disposable;
 import io.github.necrashter.natural_revenge.Main;
-import io.github.necrashter.natural_revenge.world.GameWorld;
 
-public class DecalPool {
+/**
+ * Bullet traces in a dynamic vertex buffer.
+ * <p>
+ * Each trace is a quad whose vertices store both end points and the time it's added. Billboarding and fading are done
+ * in the vertex shader, so the CPU only writes a trace once and then drops it from the circular buffer when expired.
+ */
+public class DecalPool implements Disposable {
+    public static final int DEFAULT_CAPACITY = 256;
     /**
-     * Must be power of 2.
+     * End points, then (end point selector, side, birth time).
      */
-    private static final int BULLET_TRACES = 256;
+    private static final int FLOATS_PER_VERTEX = 9;
+    private static final int FLOATS_PER_TRACE = FLOATS_PER_VERTEX * 4;
+    private static final float BULLET_TRACE_FADE_SPEED = 1.0f;
+    private static final float BULLET_TRACE_SIZE = 0.02f;
+
+    /**
+     * Power of 2.
+     */
+    public final int capacity;
     /**
      * I guess java cannot optimize modulo for powers of two since it doesn't support unsigned
      * integers. We will do it ourselves.
      */
-    private static final int BULLET_TRACES_MASK = BULLET_TRACES - 1;
+    private final int mask;
     /**
      * Circular buffer. Old elements will be overwritten when full.
      */
-    private final BeamDecal[] bulletTraces = new BeamDecal[BULLET_TRACES];
+    private final float[] vertices;
+    private final float[] birthTimes;
     private int bulletTracesStart = 0;
     private int bulletTracesLength = 0;
-    private static final float BULLET_TRACE_FADE_SPEED = 1.0f;
+    /**
+     * Range of traces to upload, inclusive. Everything is uploaded if the range wraps around.
+     */
+    private int dirtyStart = Integer.MAX_VALUE, dirtyEnd = -1;
+    private float time = 0f;
+
+    private final Mesh mesh;
+    private ShaderProgram shader = null;
 
     public DecalPool() {
-        TextureRegion bulletTraceRegion = new TextureRegion(Main.assets.bulletTrace);
-        for (int i = 0; i < BULLET_TRACES; ++i) {
-            bulletTraces[i] = BeamDecal.newBeamDecal(bulletTraceRegion, true);
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Maximum number of traces. Rounded up to a power of 2.
+     */
+    public DecalPool(int capacity) {
+        // Indices are shorts.
+        this.capacity = MathUtils.nextPowerOfTwo(MathUtils.clamp(capacity, 1, 1 << 14));
+        mask = this.capacity - 1;
+        vertices = new float[this.capacity * FLOATS_PER_TRACE];
+        birthTimes = new float[this.capacity];
+        mesh = new Mesh(false, this.capacity * 4, this.capacity * 6,
+                new VertexAttribute(VertexAttributes.Usage.Position, 3, ShaderProgram.POSITION_ATTRIBUTE),
+                new VertexAttribute(VertexAttributes.Usage.Generic, 3, "a_position2"),
+                new VertexAttribute(VertexAttributes.Usage.Generic, 3, "a_params"));
+        short[] indices = new short[this.capacity * 6];
+        for (int i = 0, v = 0; i < indices.length; i += 6, v += 4) {
+            indices[i] = (short) v;
+            indices[i + 1] = (short) (v + 1);
+            indices[i + 2] = (short) (v + 2);
+            indices[i + 3] = (short) (v + 2);
+            indices[i + 4] = (short) (v + 1);
+            indices[i + 5] = (short) (v + 3);
         }
+        mesh.setIndices(indices);
+        mesh.setVertices(vertices);
+    }
+
+    public int getTraceCount() {
+        return bulletTracesLength;
     }
 
-    public void update(Camera camera, float delta) {
-        float fade = delta * BULLET_TRACE_FADE_SPEED;
-        int removed = 0;
-        for (int i = 0; i < bulletTracesLength; ++i) {
-            BeamDecal decal = bulletTraces[(i + bulletTracesStart) & BULLET_TRACES_MASK];
-            decal.fade(fade);
-            decal.setCamera(camera.position);
-            if (decal.decayed) {
-                ++removed;
-            }
+    /**
+     * Drops the expired traces. Doesn't touch the live ones.
+     */
+    public void update(float delta) {
+        time += delta;
+        final float lifetime = 1f / BULLET_TRACE_FADE_SPEED;
+        while (bulletTracesLength > 0 && time - birthTimes[bulletTracesStart] >= lifetime) {
+            bulletTracesStart = (bulletTracesStart + 1) & mask;
+            bulletTracesLength--;
         }
-        bulletTracesStart = (bulletTracesStart + removed) & BULLET_TRACES_MASK;
-        bulletTracesLength -= removed;
     }
 
     public void addBulletTrace(Vector3 start, Vector3 end) {
-        int i = (bulletTracesStart + bulletTracesLength) & BULLET_TRACES_MASK;
+        int i = (bulletTracesStart + bulletTracesLength) & mask;
         bulletTracesLength++;
-        if (bulletTracesLength > BULLET_TRACES) {
+        if (bulletTracesLength > capacity) {
             // Overwrite first
-            bulletTracesStart += 1;
-            bulletTracesLength = BULLET_TRACES;
+            bulletTracesStart = (bulletTracesStart + 1) & mask;
+            bulletTracesLength = capacity;
         }
-        bulletTraces[i].reset();
-        bulletTraces[i].setPosition2(start);
-        bulletTraces[i].setPosition(end);
+        birthTimes[i] = time;
+        int offset = i * FLOATS_PER_TRACE;
+        for (int corner = 0; corner < 4; ++corner) {
+            // Texture starts at the end point, as BeamDecal did.
+            vertices[offset++] = end.x;
+            vertices[offset++] = end.y;
+            vertices[offset++] = end.z;
+            vertices[offset++] = start.x;
+            vertices[offset++] = start.y;
+            vertices[offset++] = start.z;
+            vertices[offset++] = corner & 1;
+            vertices[offset++] = (corner & 2) == 0 ? 1f : -1f;
+            vertices[offset++] = time;
+        }
+        dirtyStart = Math.min(dirtyStart, i);
+        dirtyEnd = Math.max(dirtyEnd, i);
+    }
+
+    /**
+     * Remove all traces.
+     */
+    public void clear() {
+        bulletTracesStart = 0;
+        bulletTracesLength = 0;
     }
 
-    public void render(GameWorld world) {
-        for (int i = 0; i < bulletTracesLength; ++i) {
-            BeamDecal decal = bulletTraces[(i + bulletTracesStart) & BULLET_TRACES_MASK];
-            world.decalBatch.add(decal);
+    private void upload() {
+        if (dirtyEnd < 0) return;
+        int offset = dirtyStart * FLOATS_PER_TRACE;
+        mesh.updateVertices(offset, vertices, offset, (dirtyEnd - dirtyStart + 1) * FLOATS_PER_TRACE);
+        dirtyStart = Integer.MAX_VALUE;
+        dirtyEnd = -1;
+    }
+
+    /**
+     * Render the live traces. Must be called in the blended pass of the world, only once per frame.
+     */
+    public void render(Camera cam, RenderContext context) {
+        if (bulletTracesLength == 0) return;
+        upload();
+        if (shader == null) {
+            shader = Main.gpuCache.acquireProgram("shaders/trace.vert", "shaders/trace.frag");
         }
+        context.setDepthTest(GL20.GL_LEQUAL);
+        context.setDepthMask(false);
+        context.setCullFace(GL20.GL_NONE);
+        context.setBlending(true, GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        shader.bind();
+        shader.setUniformMatrix("u_projViewTrans", cam.combined);
+        shader.setUniformf("u_cameraPosition", cam.position);
+        shader.setUniformf("u_time", time);
+        shader.setUniformf("u_fadeSpeed", BULLET_TRACE_FADE_SPEED);
+        shader.setUniformf("u_size", BULLET_TRACE_SIZE);
+        shader.setUniformi("u_texture", context.textureBinder.bind(Main.assets.bulletTrace));
+        int end = bulletTracesStart + bulletTracesLength;
+        if (end <= capacity) {
+            mesh.render(shader, GL20.GL_TRIANGLES, bulletTracesStart * 6, bulletTracesLength * 6);
+        } else {
+            // Wraps around.
+            mesh.render(shader, GL20.GL_TRIANGLES, bulletTracesStart * 6, (capacity - bulletTracesStart) * 6);
+            mesh.render(shader, GL20.GL_TRIANGLES, 0, (end - capacity) * 6);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        mesh.dispose();
+        if (shader != null) Main.gpuCache.release(shader);
     }
 }
@@ -0,0 +1,221 @@
+package io.github.necrashter.natural_revenge.world.entities;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.github.necrashter.natural_revenge.world.GameWorld;
+
+/**
+ * Decides which NPCs run their state machine, and how often they are simulated, in each tick.
+ * <p>
+ * NPCs that are near the player or were visible in the last rendered frame think in every tick. The others are put in
+ * buckets by distance and think every few ticks, with the time since their last think passed to the state.
+ * <p>
+ * The thinking of the far buckets is limited by a time budget per frame, which is estimated from how long the
+ * previous thinks took. An NPC that waited {@link Bucket#maxWait} ticks thinks regardless of the budget, so none of
+ * them starve.
+ * <p>
+ * Animations follow the {@link SimulationLevel} of the NPC. Outside the near bucket, they run at a reduced rate with
+ * the accumulated time. Physics runs in every tick regardless, since a longer step would change collisions. Far NPCs that stand still in a looping idle state, and dead ones whose death
+ * animation ended, sleep: they neither think nor are simulated until they get close, are damaged or are pushed.
+ * States that wait for an animation to end never sleep, since the animation wouldn't advance.
+ */
+public class AiScheduler {
+    public static final float NEAR_DISTANCE = 15f;
+    public static final float MID_DISTANCE = 40f;
+    /**
+     * Ticks for which a woken NPC cannot fall asleep again.
+     */
+    public static final int WAKE_TICKS = 60;
+
+    public enum SimulationLevel {
+        /**
+         * Simulated in every tick.
+         */
+        ACTIVE,
+        /**
+         * Animated every {@link Bucket#simulationInterval} ticks, physics in every tick.
+         */
+        REDUCED,
+        /**
+         * Neither thinks nor is simulated until woken.
+         */
+        SLEEPING,
+    }
+
+    public static class Bucket {
+        public final String name;
+        /**
+         * Thinks at most once every this many ticks.
+         */
+        public final int interval;
+        /**
+         * Thinks at least once every this many ticks, even if the budget is exhausted.
+         */
+        public final int maxWait;
+        /**
+         * Animations are updated once every this many ticks.
+         */
+        public final int simulationInterval;
+
+        /**
+         * Statistics of the current frame.
+         */
+        public int npcs, thinks, deferred, forced, longestWait, simulated, sleeping;
+
+        Bucket(String name, int interval, int maxWait, int simulationInterval) {
+            this.name = name;
+            this.interval = interval;
+            this.maxWait = maxWait;
+            this.simulationInterval = simulationInterval;
+        }
+
+        void reset() {
+            npcs = thinks = deferred = forced = longestWait = simulated = sleeping = 0;
+        }
+    }
+
+    public final Bucket near = new Bucket("Near", 1, 1, 1);
+    public final Bucket mid = new Bucket("Mid", 2, 4, 2);
+    public final Bucket far = new Bucket("Far", 4, 8, 4);
+    private final Bucket[] buckets = {near, mid, far};
+
+    /**
+     * Time that the NPCs of the mid and far buckets can spend thinking in a frame.
+     */
+    public long budgetNanos = 2000000L;
+    private long remainingNanos;
+    private float averageThinkNanos = 20000f;
+    /**
+     * NPCs are visited starting from a different index in each tick, so that the same ones are not always first when
+     * the budget runs out.
+     */
+    private int cursor = 0;
+
+    public void beginFrame() {
+        remainingNanos = budgetNanos;
+        for (Bucket bucket : buckets) bucket.reset();
+    }
+
+    private Bucket selectBucket(NPC npc, GameWorld world) {
+        if (world.player == null || npc.isRendered()) return near;
+        float dist2 = npc.hitBox.position.dst2(world.player.hitBox.position);
+        if (dist2 < NEAR_DISTANCE * NEAR_DISTANCE) return near;
+        if (dist2 < MID_DISTANCE * MID_DISTANCE) return mid;
+        return far;
+    }
+
+    /**
+     * Set {@link NPC#aiThinks} and {@link NPC#simulates} for each NPC. Called at the start of each tick, before
+     * sensing.
+     */
+    public void plan(Array<GameEntity> entities, GameWorld world) {
+        final int n = entities.size;
+        if (n == 0) return;
+        cursor = (cursor + 1) % n;
+        int allowance = (int) Math.min(Integer.MAX_VALUE, Math.max(0L, remainingNanos) / (long) averageThinkNanos);
+        // First, everything that must think: the near bucket and the starving ones.
+        for (int j = 0; j < n; ++j) {
+            GameEntity entity = entities.get(j);
+            if (!(entity instanceof NPC)) continue;
+            NPC npc = (NPC) entity;
+            npc.aiThinks = false;
+            npc.aiBucket = selectBucket(npc, world);
+            Bucket bucket = npc.aiBucket;
+            bucket.npcs++;
+            updateSimulationLevel(npc, bucket);
+            if (npc.dead || npc.simulationLevel == SimulationLevel.SLEEPING) continue;
+            npc.aiWaitTicks++;
+            if (npc.aiWaitTicks >= bucket.maxWait) {
+                if (bucket != near) bucket.forced++;
+                think(npc);
+            }
+        }
+        // Then, the ones that are due, nearer buckets first, while the budget allows.
+        for (int b = 1; b < buckets.length; ++b) {
+            Bucket bucket = buckets[b];
+            for (int j = 0; j < n; ++j) {
+                GameEntity entity = entities.get((cursor + j) % n);
+                if (!(entity instanceof NPC)) continue;
+                NPC npc = (NPC) entity;
+                if (npc.dead || npc.simulationLevel == SimulationLevel.SLEEPING || npc.aiThinks
+                        || npc.aiBucket != bucket || npc.aiWaitTicks < bucket.interval) continue;
+                if (allowance > 0) {
+                    allowance--;
+                    think(npc);
+                } else {
+                    bucket.deferred++;
+                }
+            }
+        }
+    }
+
+    private void updateSimulationLevel(NPC npc, Bucket bucket) {
+        if (npc.wakeTicks > 0) npc.wakeTicks--;
+        if (bucket == far && npc.wakeTicks == 0 && (npc.dead ? npc.deathAnimationEnded : npc.isResting())) {
+            npc.simulationLevel = SimulationLevel.SLEEPING;
+            npc.simulates = false;
+            // Time spent sleeping is not simulated or passed to the state later.
+            npc.simulationDelta = 0f;
+            npc.aiDelta = 0f;
+            bucket.sleeping++;
+            return;
+        }
+        npc.simulationLevel = bucket == near ? SimulationLevel.ACTIVE : SimulationLevel.REDUCED;
+        npc.simulationTicks++;
+        npc.simulates = npc.simulationTicks >= bucket.simulationInterval;
+        if (npc.simulates) {
+            npc.simulationTicks = 0;
+            bucket.simulated++;
+        }
+    }
+
+    /**
+     * Simulate the NPC in this tick, and don't let it sleep for a while. Its state machine runs in the next tick.
+     * Sleeping NPCs are also woken when they leave the far bucket or stop resting, see {@link #plan}.
+     */
+    void wake(NPC npc) {
+        npc.wakeTicks = WAKE_TICKS;
+        npc.aiWaitTicks = Math.max(npc.aiWaitTicks, far.maxWait);
+        if (npc.simulationLevel == SimulationLevel.SLEEPING) {
+            npc.simulationLevel = SimulationLevel.REDUCED;
+            npc.simulates = true;
+            npc.simulationTicks = 0;
+        }
+    }
+
+    private void think(NPC npc) {
+        Bucket bucket = npc.aiBucket;
+        bucket.thinks++;
+        bucket.longestWait = Math.max(bucket.longestWait, npc.aiWaitTicks);
+        npc.aiThinks = true;
+        npc.aiWaitTicks = 0;
+    }
+
+    /**
+     * Run the state machine of an NPC that was selected in {@link #plan} and measure how long it took.
+     */
+    void think(NPC npc, float delta) {
+        if (npc.aiBucket == near) {
+            npc.stateUpdate(delta);
+            return;
+        }
+        long start = TimeUtils.nanoTime();
+        npc.stateUpdate(delta);
+        long duration = TimeUtils.nanoTime() - start;
+        remainingNanos -= duration;
+        averageThinkNanos = MathUtils.clamp(MathUtils.lerp(averageThinkNanos, duration, 0.05f), 1000f, 1e6f);
+    }
+
+    public void buildText(StringBuilder stringBuilder) {
+        stringBuilder.append("AI");
+        for (Bucket bucket : buckets) {
+            stringBuilder.append(' ').append(bucket.name).append(' ')
+                    .append(bucket.thinks).append('/').append(bucket.npcs);
+            if (bucket.deferred > 0) stringBuilder.append(" -").append(bucket.deferred);
+            if (bucket.forced > 0) stringBuilder.append(" !").append(bucket.forced);
+            if (bucket != near) stringBuilder.append(" w").append(bucket.longestWait);
+            if (bucket.sleeping > 0) stringBuilder.append(" z").append(bucket.sleeping);
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package io.github.necrashter.natural_revenge.world.entities;
 
-import com.badlogic.gdx.graphics.g3d.ModelInstance;
 import com.badlogic.gdx.graphics.g3d.model.Animation;
-import com.badlogic.gdx.graphics.g3d.utils.AnimationController;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import io.github.necrashter.natural_revenge.Main;
@@ -13,9 +11,7 @@ public class Frog2 extends FrogBase {
 
     public Frog2(GameWorld world) {
         super(world);
-        modelInstance = new ModelInstance(Main.assets.frogModel, "Armature", "frog2");
-        modelInstance.transform.setToTranslation(hitBox.position);
-        animationController = new AnimationController(modelInstance);
+        setModel(Main.assets.frog2Animation);
 
         // States
         pursueToStrike = new PursueToStrike("walk", 5f) {
@@ -1,7 +1,5 @@
 package io.github.necrashter.natural_revenge.world.entities;
 
-import com.badlogic.gdx.graphics.g3d.ModelInstance;
-import com.badlogic.gdx.graphics.g3d.utils.AnimationController;
 
 import io.github.necrashter.natural_revenge.Main;
 import io.github.necrashter.natural_revenge.world.GameWorld;
@@ -12,9 +10,7 @@ public class Frog2Ranged extends FrogBase {
     SpitOnce spitOnce;
     public Frog2Ranged(GameWorld world) {
         super(world);
-        modelInstance = new ModelInstance(Main.assets.frogModel, "Armature", "frog2");
-        modelInstance.transform.setToTranslation(hitBox.position);
-        animationController = new AnimationController(modelInstance);
+        setModel(Main.assets.frog2Animation);
 
         // States
         pursueEntity = new PursueEntity("walk", 10f);
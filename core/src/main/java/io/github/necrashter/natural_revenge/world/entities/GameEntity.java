@@ -16,6 +16,14 @@ public class GameEntity implements Damageable, Spatial {
     public CharHitBox hitBox;
     public final Vector3 movement = new Vector3();
     public final Vector3 forward = new Vector3(1, 0, 0);
+    /**
+     * Position of the hit box in the previous tick.
+     */
+    public final Vector3 previousPosition = new Vector3();
+    /**
+     * Position of the hit box between the last two ticks, where the entity is drawn.
+     */
+    public final Vector3 renderPosition = new Vector3();
 
     public GameWorld world;
     public Octree octree = null;
@@ -60,6 +68,7 @@ public class GameEntity implements Damageable, Spatial {
         this.world = world;
         hitBox = new CharHitBox(height, radius);
         hitBox.position.y = world.terrain.getHeight(0, 0) + radius;
+        snapToPosition();
     }
 
     public void jump(float velocity) {
@@ -67,7 +76,27 @@ public class GameEntity implements Damageable, Spatial {
             hitBox.velocity.y += velocity;
     }
 
-    public void update(float delta) {
+    /**
+     * Read the world before the tick, e.g. cast rays, and keep the results for {@link #tick(float)}.
+     * Called for all entities that {@link #needsSense()} at the same time, possibly from different threads. Must not
+     * modify anything but the fields of this entity that only this method writes, and must only use reentrant queries
+     * such as
+     * {@link GameWorld#intersectRay(com.badlogic.gdx.math.collision.Ray, GameEntity, io.github.necrashter.natural_revenge.world.Octree.RayQuery)}.
+     */
+    public void sense() {
+    }
+
+    /**
+     * @return True if {@link #sense()} has anything to do in this tick. Entities that return false are not sensed.
+     */
+    public boolean needsSense() {
+        return false;
+    }
+
+    /**
+     * Simulate one tick. Anything that is only needed for drawing belongs in {@link #present(float)}.
+     */
+    public void tick(float delta) {
         hitBox.position.mulAdd(movement, delta);
 
         if (hitBox.onObject || hitBox.onGround)
@@ -101,6 +130,27 @@ public class GameEntity implements Damageable, Spatial {
         hitBox.position.set(x, 0, z);
         hitBox.position.y = world.terrain.getHeight(x, z) + hitBox.radius;
         hitBox.velocity.setZero();
+        snapToPosition();
+    }
+
+    public void savePreviousState() {
+        previousPosition.set(hitBox.position);
+    }
+
+    /**
+     * Don't interpolate from the previous position, e.g. after teleporting.
+     */
+    public void snapToPosition() {
+        previousPosition.set(hitBox.position);
+        renderPosition.set(hitBox.position);
+    }
+
+    /**
+     * Called once per rendered frame after the ticks of that frame, regardless of how many ticks there were.
+     * @param alpha 0 for the previous tick, 1 for the last one.
+     */
+    public void present(float alpha) {
+        renderPosition.set(previousPosition).lerp(hitBox.position, alpha);
     }
 
     public boolean isVisible(Camera cam) {
@@ -115,6 +165,13 @@ public class GameEntity implements Damageable, Spatial {
     public void render(GameWorld world) {
     }
 
+    /**
+     * Called after the entity is rendered in the {@link io.github.necrashter.natural_revenge.world.render.WarmupPass}
+     * to prepare anything else that is lazily created, e.g. animation poses.
+     */
+    public void warmup() {
+    }
+
     public boolean hit(GameEntity other) {
         if (dead || other.dead) return false;
 
@@ -176,9 +233,14 @@ public class GameEntity implements Damageable, Spatial {
         return moveCheck;
     }
 
+    private boolean isInFreeSpace() {
+        return world.navigationGrid != null && world.navigationGrid.isFree(hitBox);
+    }
+
     public MoveCheck moveCheck(float delta) {
         MoveCheck moveCheck = prepareMoveCheck(delta);
-        if (world.terrain.moveCheck(moveCheck) || world.octree.moveCheck(moveCheck)) {
+        if (world.terrain.moveCheck(moveCheck)
+                || (!isInFreeSpace() && world.octree.moveCheck(moveCheck))) {
             hitBox.position.set(moveCheck.oldPosition);
             return moveCheck;
         } else {
@@ -13,18 +13,28 @@ import com.badlogic.gdx.utils.Pool;
 import io.github.necrashter.natural_revenge.Main;
 import io.github.necrashter.natural_revenge.world.Damageable;
 import io.github.necrashter.natural_revenge.world.GameWorld;
+import io.github.necrashter.natural_revenge.world.LineOfSight;
+import io.github.necrashter.natural_revenge.world.NavigationGrid;
+import io.github.necrashter.natural_revenge.world.Octree;
 import io.github.necrashter.natural_revenge.world.Spatial;
 import io.github.necrashter.natural_revenge.world.decals.DecayingDecal;
 import io.github.necrashter.natural_revenge.world.geom.RayIntersection;
 import io.github.necrashter.natural_revenge.world.objects.RandomGunPickup;
+import io.github.necrashter.natural_revenge.world.render.BakedAnimation;
+import io.github.necrashter.natural_revenge.world.render.BakedAnimationController;
 
 public class NPC extends GameEntity implements Pool.Poolable {
     private static final Vector3 temp = new Vector3();
 
     ModelInstance modelInstance;
     final Vector3 right = new Vector3();
+    /**
+     * The transform of the model instance is only rebuilt when it's rendered and the entity moved or turned since.
+     */
+    private boolean transformDirty = true;
+    private final Vector3 transformForward = new Vector3();
 
-    AnimationController animationController;
+    BakedAnimationController animationController;
     boolean animationJustEnded = false;
     AnimationController.AnimationListener animationListener = new AnimationController.AnimationListener() {
         @Override
@@ -46,6 +56,15 @@ public class NPC extends GameEntity implements Pool.Poolable {
         super(world, height, radius);
     }
 
+    /**
+     * Create the model instance and animation controller. Rendered with instancing if the animation is baked.
+     */
+    void setModel(BakedAnimation animation) {
+        modelInstance = animation.createInstance();
+        modelInstance.transform.setToTranslation(hitBox.position);
+        animationController = new BakedAnimationController(modelInstance, animation);
+    }
+
     boolean initialized = false;
     public void init() {
         if (currentState != null) {
@@ -56,41 +75,125 @@ public class NPC extends GameEntity implements Pool.Poolable {
 
     @Override
     public void render(GameWorld world) {
-        if (isInViewDistance(world.cam, world.viewDistance) && isVisible(world.cam)) {
-            world.modelBatch.render(modelInstance, world.environment);
+        if (isInViewDistance(world.cam, world.viewDistance) && isVisible(world.cam)
+                && world.occlusionCuller.isVisible(hitBox.getBoundingSphere(), hitBox.boundingRadius)) {
+            validateTransform();
+            if (animationController.isBaked()) {
+                world.skinnedRenderer.add(modelInstance.transform, animationController);
+            } else {
+                world.modelBatch.render(modelInstance, world.environment);
+            }
+            if (!decal.decayed) {
+                world.decalBatch.add(decal);
+            }
             world.visibleCount++;
+            renderedFrame = world.frameIndex;
         }
-        if (!decal.decayed) {
-            world.decalBatch.add(decal);
-        }
+    }
+
+    /**
+     * @return True if the NPC passed the culling in the last rendered frame.
+     */
+    boolean isRendered() {
+        return renderedFrame == world.frameIndex;
+    }
+
+    @Override
+    public void warmup() {
+        animationController.warmup();
+    }
+
+    /**
+     * Results of {@link #sense()}, only valid in the tick right after it.
+     */
+    private State sensedState = null;
+    private boolean sensedTargetVisible = false;
+    private final Octree.RayQuery senseQuery = new Octree.RayQuery();
+    private final Ray senseRay = new Ray();
+    private final Vector3 senseMuzzlePoint = new Vector3();
+    private final LineOfSight.Entry sight = new LineOfSight.Entry();
+
+    @Override
+    public void sense() {
+        currentState.sense();
+    }
+
+    @Override
+    public boolean needsSense() {
+        return !dead && aiThinks && currentState != null && currentState.needsSense();
+    }
+
+    /**
+     * Reentrant line of sight check from the muzzle, for {@link #sense()}.
+     */
+    private boolean canSee(GameEntity target) {
+        toWorld(muzzlePoint, senseMuzzlePoint);
+        senseRay.origin.set(senseMuzzlePoint);
+        senseRay.direction.set(target.hitBox.position).sub(senseMuzzlePoint).nor();
+        return world.intersectRay(senseRay, this, senseQuery).entity == target;
     }
 
     public boolean removeOnDeath = true;
 
     @Override
-    public void update(float delta) {
-        if (!decal.decayed) {
-            decal.fade(delta);
+    public void tick(float delta) {
+        simulationDelta += delta;
+        if (simulates) {
+            if (!decal.decayed) {
+                decal.fade(simulationDelta);
+            }
+            animationController.update(simulationDelta);
+            simulationDelta = 0f;
         }
 
-        animationController.update(delta);
-
         if (dead) {
-            if (removeOnDeath && animationJustEnded) {
-                remove();
+            if (animationJustEnded) {
+                if (removeOnDeath) {
+                    remove();
+                } else {
+                    deathAnimationEnded = true;
+                }
                 animationJustEnded = false;
             }
             return;
         }
 
-        stateUpdate(delta);
+        aiDelta += delta;
+        if (aiThinks) {
+            world.aiScheduler.think(this, aiDelta);
+            aiDelta = 0f;
+            sensedState = null;
+            // Kept until the state machine sees it.
+            animationJustEnded = false;
+        }
 
-        super.update(delta);
-        updateTransform();
-        animationJustEnded = false;
+        // Physics runs in every tick at the reduced rate too, so that collisions and move checks don't change.
+        if (simulationLevel != AiScheduler.SimulationLevel.SLEEPING) {
+            super.tick(delta);
+        }
     }
 
-    void updateTransform() {
+    @Override
+    public boolean takeDamage(float amount, DamageAgent agent, DamageSource source) {
+        world.aiScheduler.wake(this);
+        return super.takeDamage(amount, agent, source);
+    }
+
+    @Override
+    public void present(float alpha) {
+        temp.set(renderPosition);
+        super.present(alpha);
+        if (!temp.equals(renderPosition)) transformDirty = true;
+    }
+
+    void invalidateTransform() {
+        transformDirty = true;
+    }
+
+    private void validateTransform() {
+        if (!transformDirty && transformForward.equals(forward)) return;
+        transformDirty = false;
+        transformForward.set(forward);
         modelInstance.transform.idt();
         modelInstance.transform.val[Matrix4.M02] = -forward.x;
         modelInstance.transform.val[Matrix4.M12] = -forward.y;
@@ -101,7 +204,19 @@ public class NPC extends GameEntity implements Pool.Poolable {
         modelInstance.transform.val[Matrix4.M10] = right.y;
         modelInstance.transform.val[Matrix4.M20] = right.z;
 
-        modelInstance.transform.trn(hitBox.position.x, hitBox.position.y-hitBox.radius, hitBox.position.z);
+        modelInstance.transform.trn(renderPosition.x, renderPosition.y-hitBox.radius, renderPosition.z);
+    }
+
+    /**
+     * Transform a point of the model to the world at the current tick, same as the transform of the model instance
+     * would do, without building the matrix.
+     */
+    private Vector3 toWorld(Vector3 local, Vector3 out) {
+        right.set(forward).crs(Vector3.Y).nor();
+        return out.set(hitBox.position.x, hitBox.position.y-hitBox.radius, hitBox.position.z)
+                .mulAdd(right, local.x)
+                .add(0f, local.y, 0f)
+                .mulAdd(forward, -local.z);
     }
 
     public String deathAnim = "fallback";
@@ -171,6 +286,28 @@ public class NPC extends GameEntity implements Pool.Poolable {
         }
     }
 
+    /**
+     * Same as {@link #checkedMoveTo} but follows {@link GameWorld#flowField} when the target is the player, which
+     * goes around the obstacles without checking the move against them. Only NPCs that fit in
+     * {@link NavigationGrid#AGENT_RADIUS} can use it, since the grid is free for that radius. The terrain boundary is
+     * still checked, and the move is checked as usual if the field has no direction, e.g. when the next cell became
+     * blocked after the field was computed.
+     */
+    public void pursue(GameEntity target, float speed, float delta) {
+        if (target != world.player || world.flowField == null || hitBox.radius > NavigationGrid.AGENT_RADIUS
+                || !world.flowField.getDirection(hitBox.position, temp)) {
+            checkedMoveTo(target.hitBox.position, speed, delta);
+            return;
+        }
+        moveTo(target.hitBox.position, 0f);
+        forward.set(temp);
+        movement.set(temp).scl(speed);
+        MoveCheck moveCheck = prepareMoveCheck(delta);
+        boolean boundary = world.terrain.moveCheck(moveCheck);
+        hitBox.position.set(moveCheck.oldPosition);
+        if (boundary) checkedMoveTo(target.hitBox.position, speed, delta);
+    }
+
     /* Ray */
     static final Vector3 pistolMuzzlePoint = new Vector3(0.058f * 3, 0.412f * 3, -0.325f * 3);
     static final Vector3 autoRifleMuzzlePoint = new Vector3(0.12f * 3, 0.4f * 3, -0.34f * 3);
@@ -182,9 +319,7 @@ public class NPC extends GameEntity implements Pool.Poolable {
     private final DecayingDecal decal = DecayingDecal.newDecayingDecal(Main.assets.muzzleFlashRegion, true);
 
     private RayIntersection intersectRay(Vector3 target) {
-        // Some repeated operations here
-        updateTransform();
-        globalMuzzlePoint.set(muzzlePoint).mul(modelInstance.transform);
+        toWorld(muzzlePoint, globalMuzzlePoint);
         ray.direction.set(target).sub(globalMuzzlePoint).nor();
         ray.origin.set(globalMuzzlePoint);
         rayIntersection.set(world.intersectRay(ray, this));
@@ -196,8 +331,7 @@ public class NPC extends GameEntity implements Pool.Poolable {
         // Some repeated operations here
         aimTargetPosition.set(target.hitBox.position);
         aimTargetPosition.y += target.hitBox.height/2;
-        updateTransform();
-        globalMuzzlePoint.set(muzzlePoint).mul(modelInstance.transform);
+        toWorld(muzzlePoint, globalMuzzlePoint);
         ray.direction.set(aimTargetPosition).sub(globalMuzzlePoint).nor();
         if (baseInaccuracy > 0 || movementInaccuracy > 1e-4) {
             // movement inaccuracy is scaled with perpendicular component of enemy movement
@@ -227,6 +361,59 @@ public class NPC extends GameEntity implements Pool.Poolable {
     /* Finite State Machine */
 
     State currentState = null;
+    /**
+     * Set by {@link AiScheduler#plan} in each tick.
+     */
+    boolean aiThinks = true;
+    AiScheduler.Bucket aiBucket;
+    int aiWaitTicks = 0;
+    /**
+     * Time since the state machine last ran.
+     */
+    float aiDelta = 0f;
+
+    /* Simulation level, also set by AiScheduler */
+
+    AiScheduler.SimulationLevel simulationLevel = AiScheduler.SimulationLevel.ACTIVE;
+    /**
+     * Whether animations are updated in this tick. Physics is updated in every tick unless the NPC is sleeping.
+     */
+    boolean simulates = true;
+    int simulationTicks = 0;
+    /**
+     * Time since animations were last updated.
+     */
+    float simulationDelta = 0f;
+    int wakeTicks = 0;
+    /**
+     * Only set if the NPC is not removed on death.
+     */
+    boolean deathAnimationEnded = false;
+    private int renderedFrame = -1;
+
+    /**
+     * @return True if the NPC stands still in a state that {@link State#canSleep()}.
+     */
+    boolean isResting() {
+        return currentState != null && currentState.canSleep() && movement.isZero() && hitBox.onGround && hitBox.velocity.len2() < 1e-4f;
+    }
+
+    /**
+     * Called when the NPC is spawned, which may be without {@link #reset()}.
+     */
+    void resetSimulation() {
+        aiThinks = true;
+        aiWaitTicks = 0;
+        aiDelta = 0f;
+        simulationLevel = AiScheduler.SimulationLevel.ACTIVE;
+        simulates = true;
+        // Spread the reduced rate updates over the ticks.
+        simulationTicks = MathUtils.random(3);
+        simulationDelta = 0f;
+        wakeTicks = 0;
+        deathAnimationEnded = false;
+        sight.clear();
+    }
 
     void stateUpdate(float delta) {
         if (currentState != null) {
@@ -259,7 +446,8 @@ public class NPC extends GameEntity implements Pool.Poolable {
         setPosition(point.x, point.y);
         world.octree.add(this);
         init();
-        updateTransform();
+        invalidateTransform();
+        resetSimulation();
     }
 
     abstract class StateTransitionCondition {
@@ -282,6 +470,24 @@ public class NPC extends GameEntity implements Pool.Poolable {
         void init() {
         }
 
+        /**
+         * See {@link NPC#sense()}. Only reads the world.
+         */
+        void sense() {
+        }
+
+        boolean needsSense() {
+            return false;
+        }
+
+        /**
+         * @return True if the NPC can stop being simulated in this state, i.e. it only loops an animation and doesn't
+         * wait for one to end.
+         */
+        boolean canSleep() {
+            return false;
+        }
+
         boolean update(float delta) {
             for (StateTransitionCondition condition: stateSwitchConditions) {
                 if (condition.check()) {
@@ -388,7 +594,7 @@ public class NPC extends GameEntity implements Pool.Poolable {
                 }
 //                movement.setZero();
             } else {
-                checkedMoveTo(targetEntity.hitBox.position, movementSpeed, delta);
+                pursue(targetEntity, movementSpeed, delta);
                 if (distanceToTargetB < strikeBeginDist) {
                     movement.setZero();
                     animationController.animate(strikeAnim, -1, attackAnimSpeed, animationListener, 0.15f);
@@ -434,7 +640,7 @@ public class NPC extends GameEntity implements Pool.Poolable {
                 return;
             }
             moveTo(targetEntity.hitBox.position, 0);
-            if (distanceToTargetB < desiredDistance && (!checkRay || intersectRay(targetEntity.hitBox.position).entity == targetEntity)) {
+            if (distanceToTargetB < desiredDistance && (!checkRay || isTargetVisible())) {
                 switchState(onReached);
             } else {
                 animationController.setAnimation(movementAnim, -1, moveAnimSpeed, animationListener);
@@ -447,12 +653,45 @@ public class NPC extends GameEntity implements Pool.Poolable {
                 return true;
             }
             if (super.update(delta)) return true;
-            checkedMoveTo(targetEntity.hitBox.position, movementSpeed, delta);
-            if (distanceToTargetB < desiredDistance && (!checkRay || intersectRay(targetEntity.hitBox.position).entity == targetEntity)) {
+            pursue(targetEntity, movementSpeed, delta);
+            if (distanceToTargetB < desiredDistance && (!checkRay || isTargetVisible())) {
                 switchState(onReached);
             }
             return false;
         }
+
+        @Override
+        boolean needsSense() {
+            return checkRay;
+        }
+
+        @Override
+        void sense() {
+            final Vector3 p = hitBox.position, t = targetEntity.hitBox.position;
+            final float dx = t.x - p.x, dy = (t.y - p.y) * 0.5f, dz = t.z - p.z;
+            // The ray is only needed when the target is about to be reached in this tick.
+            final float maxDistance = desiredDistance + movementSpeed * world.tickDelta;
+            if (dx * dx + dy * dy + dz * dz >= maxDistance * maxDistance) return;
+            if (sight.isFresh(NPC.this, targetEntity, world.time)) return;
+            sensedTargetVisible = canSee(targetEntity);
+            sensedState = this;
+        }
+
+        private boolean isTargetVisible() {
+            LineOfSight lineOfSight = world.lineOfSight;
+            if (sensedState == this) {
+                lineOfSight.storeSensed(sight, NPC.this, targetEntity, sensedTargetVisible, world.time);
+                return sensedTargetVisible;
+            }
+            if (sight.isFresh(NPC.this, targetEntity, world.time)
+                    || (sight.target == targetEntity && !lineOfSight.tryCast())) {
+                lineOfSight.cacheHits++;
+                return sight.visible;
+            }
+            boolean visible = intersectRay(targetEntity.hitBox.position).entity == targetEntity;
+            lineOfSight.storeCast(sight, NPC.this, targetEntity, visible, world.time);
+            return visible;
+        }
     }
 
     class PistolShoot extends State {
@@ -574,7 +813,7 @@ public class NPC extends GameEntity implements Pool.Poolable {
         public boolean update(float delta) {
             if (super.update(delta)) return true;
             float movementSpeed = running ? runSpeed : walkSpeed;
-            checkedMoveTo(targetEntity.hitBox.position, movementSpeed, delta);
+            pursue(targetEntity, movementSpeed, delta);
             if (moving) {
                 if (distanceToTargetB < distStartIdle) {
                     moving = false;
@@ -696,6 +935,11 @@ public class NPC extends GameEntity implements Pool.Poolable {
             timePassed = 0.0f;
         }
 
+        @Override
+        boolean canSleep() {
+            return true;
+        }
+
         @Override
         boolean update(float delta) {
             if (super.update(delta)) return true;
@@ -743,6 +987,11 @@ public class NPC extends GameEntity implements Pool.Poolable {
             timePassed = 0.0f;
         }
 
+        @Override
+        boolean canSleep() {
+            return true;
+        }
+
         @Override
         boolean update(float delta) {
             if (super.update(delta)) return true;
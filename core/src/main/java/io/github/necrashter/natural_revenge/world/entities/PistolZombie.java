@@ -1,7 +1,5 @@
 package io.github.necrashter.natural_revenge.world.entities;
 
-import com.badlogic.gdx.graphics.g3d.ModelInstance;
-import com.badlogic.gdx.graphics.g3d.utils.AnimationController;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.Pool;
 import io.github.necrashter.natural_revenge.Main;
@@ -13,9 +11,7 @@ public class PistolZombie extends NPC implements Pool.Poolable {
 
     public PistolZombie(GameWorld world) {
         super(world);
-        modelInstance = new ModelInstance(Main.assets.npcModel, "ManArmature", "ZombieMesh", "pistol");
-        modelInstance.transform.setToTranslation(hitBox.position);
-        animationController = new AnimationController(modelInstance);
+        setModel(Main.assets.pistolZombieAnimation);
 
         // States
         pursueEntity = new PursueEntity(true);
@@ -1,7 +1,5 @@
 package io.github.necrashter.natural_revenge.world.entities;
 
-import com.badlogic.gdx.graphics.g3d.ModelInstance;
-import com.badlogic.gdx.graphics.g3d.utils.AnimationController;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Pool;
@@ -15,9 +13,7 @@ public class RifleZombie extends NPC implements Pool.Poolable {
 
     public RifleZombie(GameWorld world) {
         super(world);
-        modelInstance = new ModelInstance(Main.assets.npcModel, "ManArmature", "ZombieMesh", "M4A1");
-        modelInstance.transform.setToTranslation(hitBox.position);
-        animationController = new AnimationController(modelInstance);
+        setModel(Main.assets.rifleZombieAnimation);
 
         muzzlePoint.set(autoRifleMuzzlePoint);
 
@@ -1,7 +1,5 @@
 package io.github.necrashter.natural_revenge.world.entities;
 
-import com.badlogic.gdx.graphics.g3d.ModelInstance;
-import com.badlogic.gdx.graphics.g3d.utils.AnimationController;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import io.github.necrashter.natural_revenge.Main;
@@ -13,9 +11,7 @@ public class Zombie extends NPC {
 
     public Zombie(GameWorld world) {
         super(world);
-        modelInstance = new ModelInstance(Main.assets.npcModel, "ManArmature", "ZombieMesh");
-        modelInstance.transform.setToTranslation(hitBox.position);
-        animationController = new AnimationController(modelInstance);
+        setModel(Main.assets.zombieAnimation);
 
         // States
         pursueToStrike = new PursueToStrike("zombie-walk", 2.5f) {
@@ -55,7 +51,8 @@ public class Zombie extends NPC {
         setPosition(point.x, point.y);
         world.octree.add(this);
         init();
-        updateTransform();
+        invalidateTransform();
+        resetSimulation();
         switchState(emergeState);
         world.playSound(Main.assets.zombieEmerge, hitBox.position, 0.25f);
     }
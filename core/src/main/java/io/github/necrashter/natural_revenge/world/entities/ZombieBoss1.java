@@ -1,7 +1,5 @@
 package io.github.necrashter.natural_revenge.world.entities;
 
-import com.badlogic.gdx.graphics.g3d.ModelInstance;
-import com.badlogic.gdx.graphics.g3d.utils.AnimationController;
 import com.badlogic.gdx.math.MathUtils;
 
 import io.github.necrashter.natural_revenge.Main;
@@ -13,9 +11,7 @@ public class ZombieBoss1 extends ZombieBossBase {
 
     public ZombieBoss1(GameWorld world) {
         super(world);
-        modelInstance = new ModelInstance(Main.assets.npcModel, "ManArmature", "ZombieBoss", "M4A1");
-        modelInstance.transform.setToTranslation(hitBox.position);
-        animationController = new AnimationController(modelInstance);
+        setModel(Main.assets.zombieBossAnimation);
 
         muzzlePoint.set(autoRifleMuzzlePoint);
 
@@ -35,7 +35,8 @@ public class ZombieBossBase extends NPC {
         init();
         // Look at player
         moveTo(world.player.hitBox.position, 0f);
-        updateTransform();
+        invalidateTransform();
+        resetSimulation();
         switchState(emergeState);
         world.playSound(Main.assets.frogEmerge, hitBox.position);
     }
@@ -25,6 +25,7 @@ public class BoxShape extends SphereShape {
     public float intersectsGetCenterDist2(Matrix4 transform, Ray ray) {
         final float len = intersectsGetRayT(transform, ray);
         if (len < Float.POSITIVE_INFINITY) {
+            transform.getTranslation(position).add(center);
             return position.dst2(ray.origin.x+ray.direction.x*len, ray.origin.y+ray.direction.y*len, ray.origin.z+ray.direction.z*len);
         }
         return Float.POSITIVE_INFINITY;
@@ -32,30 +33,33 @@ public class BoxShape extends SphereShape {
 
     @Override
     public float intersectsGetRayT(Matrix4 transform, Ray ray) {
-        transform.getTranslation(position).add(center);
+        // No shared temporaries, so that rays can be cast from different threads.
+        final float px = transform.val[Matrix4.M03] + center.x;
+        final float py = transform.val[Matrix4.M13] + center.y;
+        final float pz = transform.val[Matrix4.M23] + center.z;
 
         final float divX = 1f / ray.direction.x;
         final float divY = 1f / ray.direction.y;
         final float divZ = 1f / ray.direction.z;
 
-        float minx = ((position.x - dimensions.x) - ray.origin.x) * divX;
-        float maxx = ((position.x + dimensions.x) - ray.origin.x) * divX;
+        float minx = ((px - dimensions.x) - ray.origin.x) * divX;
+        float maxx = ((px + dimensions.x) - ray.origin.x) * divX;
         if (minx > maxx) {
             final float t = minx;
             minx = maxx;
             maxx = t;
         }
 
-        float miny = ((position.y - dimensions.y) - ray.origin.y) * divY;
-        float maxy = ((position.y + dimensions.y) - ray.origin.y) * divY;
+        float miny = ((py - dimensions.y) - ray.origin.y) * divY;
+        float maxy = ((py + dimensions.y) - ray.origin.y) * divY;
         if (miny > maxy) {
             final float t = miny;
             miny = maxy;
             maxy = t;
         }
 
-        float minz = ((position.z - dimensions.z) - ray.origin.z) * divZ;
-        float maxz = ((position.z + dimensions.z) - ray.origin.z) * divZ;
+        float minz = ((pz - dimensions.z) - ray.origin.z) * divZ;
+        float maxz = ((pz + dimensions.z) - ray.origin.z) * divZ;
         if (minz > maxz) {
             final float t = minz;
             minz = maxz;
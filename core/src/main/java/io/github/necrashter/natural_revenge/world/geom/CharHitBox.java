@@ -21,12 +21,46 @@ public class CharHitBox {
     public final float boundingRadius;
     public boolean onGround = false;
     public boolean onObject = false;
+    /**
+     * World bounds, computed when first needed after the position changes. The position is written directly in many
+     * places, so a write is detected by comparing it with {@link #boundsPosition}.
+     */
+    private final Vector3 boundsMin = new Vector3();
+    private final Vector3 boundsMax = new Vector3();
+    private final Vector3 boundsPosition = new Vector3();
 
     public CharHitBox(float height, float radius) {
         this.height = height;
         this.radius = radius;
         this.boundingRadius = height / 2.0f + radius;
         dimensions = new Vector3(radius * 2, height, radius*2);
+        computeBounds();
+    }
+
+    private void computeBounds() {
+        boundsPosition.set(position);
+        boundsMin.set(position.x - radius, position.y - radius, position.z - radius);
+        boundsMax.set(position.x + radius, position.y + height + radius, position.z + radius);
+    }
+
+    private void validateBounds() {
+        if (!boundsPosition.equals(position)) computeBounds();
+    }
+
+    /**
+     * @return Cached minimum point of the bounds. Must not be modified, and is only valid until the position changes.
+     */
+    public Vector3 getBoundsMin() {
+        validateBounds();
+        return boundsMin;
+    }
+
+    /**
+     * @return Cached maximum point of the bounds. Must not be modified, and is only valid until the position changes.
+     */
+    public Vector3 getBoundsMax() {
+        validateBounds();
+        return boundsMax;
     }
 
     public Vector3 getBoundingSphere() {
@@ -72,41 +106,32 @@ public class CharHitBox {
     }
 
     public void getMinPoint(Vector3 p) {
-        p.set(position);
-        p.y -= radius;
-        p.x -= radius;
-        p.z -= radius;
+        p.set(getBoundsMin());
     }
 
     public void getMaxPoint(Vector3 p) {
-        p.set(position);
-        p.y += height + radius;
-        p.x += radius;
-        p.z += radius;
+        p.set(getBoundsMax());
     }
 
-    private final static Vector3 intersectionRayPoint = new Vector3();
-    private final static Vector3 intersectionVector = new Vector3();
-    public float intersectionHeight = Float.NaN;
-
+    /**
+     * Doesn't use any shared temporaries, so that rays can be cast from different threads.
+     */
     public float intersectRay(Ray ray) {
         float rayT;
+        float closestX, closestY, closestZ;
         if (Math.abs(ray.direction.x) < 1e-4 && Math.abs(ray.direction.z) < 1e-4) {
-            intersectionVector.set(
-                    position.x,
-                    MathUtils.clamp(ray.origin.y, position.y, position.y + height),
-                    position.z
-            );
+            closestX = position.x;
+            closestY = MathUtils.clamp(ray.origin.y, position.y, position.y + height);
+            closestZ = position.z;
             rayT = ray.direction.dot(
-                    intersectionVector.x - ray.origin.x,
-                    intersectionVector.y - ray.origin.y,
-                    intersectionVector.z - ray.origin.z
+                    closestX - ray.origin.x,
+                    closestY - ray.origin.y,
+                    closestZ - ray.origin.z
             );
 
             if (rayT < 0) {
                 return Float.POSITIVE_INFINITY;
             }
-            intersectionRayPoint.set(ray.origin).mulAdd(ray.direction, rayT);
         } else {
             // Ray origin to current position
             float rayToPosX = position.x - ray.origin.x;
@@ -119,18 +144,16 @@ public class CharHitBox {
             if (rayT < 0) {
                 return Float.POSITIVE_INFINITY;
             }
-            intersectionRayPoint.set(ray.origin).mulAdd(ray.direction, rayT);
-            intersectionVector.set(
-                    position.x,
-                    MathUtils.clamp(intersectionRayPoint.y, position.y, position.y + height),
-                    position.z
-            );
+            closestX = position.x;
+            closestY = MathUtils.clamp(ray.origin.y + ray.direction.y * rayT, position.y, position.y + height);
+            closestZ = position.z;
         }
 
-        intersectionHeight = intersectionVector.y - position.y;
-        intersectionVector.sub(intersectionRayPoint);
+        float dx = closestX - (ray.origin.x + ray.direction.x * rayT);
+        float dy = closestY - (ray.origin.y + ray.direction.y * rayT);
+        float dz = closestZ - (ray.origin.z + ray.direction.z * rayT);
 
-        if (intersectionVector.len2() > radius * radius) {
+        if (dx * dx + dy * dy + dz * dz > radius * radius) {
             return Float.POSITIVE_INFINITY;
         }
         return rayT;
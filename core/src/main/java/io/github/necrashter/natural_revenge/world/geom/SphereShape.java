@@ -46,8 +46,10 @@ public class SphereShape implements Shape {
     @Override
     public float intersectsGetRayT(Matrix4 transform, Ray ray) {
         // TODO: incorrect
-        transform.getTranslation(position).add(center);
-        final float len = ray.direction.dot(position.x-ray.origin.x, position.y-ray.origin.y, position.z-ray.origin.z);
+        final float len = ray.direction.dot(
+                transform.val[Matrix4.M03] + center.x - ray.origin.x,
+                transform.val[Matrix4.M13] + center.y - ray.origin.y,
+                transform.val[Matrix4.M23] + center.z - ray.origin.z);
         return len;
     }
 
@@ -1,8 +1,6 @@
 package io.github.necrashter.natural_revenge.world.levels;
 
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
-import com.badlogic.gdx.graphics.g3d.environment.DirectionalLight;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.math.Vector3;
@@ -28,10 +26,7 @@ public class Level2Flying extends GameWorld {
     public Level2Flying(Main game, int level, float easiness) {
         super(game, level, easiness);
 
-        environment.set(new ColorAttribute(ColorAttribute.AmbientLight, 0.2f, 0.25f, 0.2f, 1f));
-        environment.set(new ColorAttribute(ColorAttribute.Fog, 0.38f, 0.55f, 0.42f, 1f));
-
-        environment.add(new DirectionalLight().set(0.6f, 0.6f, 0.6f, -1f, -0.8f, -0.2f));
+        setLevelLighting(environment);
 
         RandomXS128 random = new RandomXS128(64);
         Perlin perlin = new Perlin();
@@ -69,6 +64,8 @@ public class Level2Flying extends GameWorld {
 
         frog1 = new Frog1(this);
         zombiePool = new Zombie.Pool(this, 32);
+        warmupPass.add(frog1);
+        warmupPass.addPool(zombiePool);
 
         phaseCountdown = new PhaseCountdownObjective();
         clearPhaseObjective = new ClearPhaseObjective();
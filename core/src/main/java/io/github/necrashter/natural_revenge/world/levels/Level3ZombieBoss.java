@@ -1,7 +1,5 @@
 package io.github.necrashter.natural_revenge.world.levels;
 
-import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
-import com.badlogic.gdx.graphics.g3d.environment.DirectionalLight;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.math.Vector3;
@@ -27,10 +25,7 @@ public class Level3ZombieBoss extends GameWorld {
     public Level3ZombieBoss(Main game, int level, float easiness) {
         super(game, level, easiness);
 
-        environment.set(new ColorAttribute(ColorAttribute.AmbientLight, 0.2f, 0.25f, 0.2f, 1f));
-        environment.set(new ColorAttribute(ColorAttribute.Fog, 0.38f, 0.55f, 0.42f, 1f));
-
-        environment.add(new DirectionalLight().set(0.6f, 0.6f, 0.6f, -1f, -0.8f, -0.2f));
+        setLevelLighting(environment);
 
         RandomXS128 random = new RandomXS128(64);
         Perlin perlin = new Perlin();
@@ -61,6 +56,9 @@ public class Level3ZombieBoss extends GameWorld {
         frogParticlePool = new FrogParticle.Pool(32);
 
         zombie1 = new ZombieBoss1(this);
+        warmupPass.add(zombie1);
+        warmupPass.addPool(pistolPool);
+        warmupPass.addPool(riflePool);
 
         phaseCountdown = new PhaseCountdownObjective();
         clearPhaseObjective = new ClearPhaseObjective();
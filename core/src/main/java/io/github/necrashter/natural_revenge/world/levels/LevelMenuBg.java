@@ -1,7 +1,5 @@
 package io.github.necrashter.natural_revenge.world.levels;
 
-import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
-import com.badlogic.gdx.graphics.g3d.environment.DirectionalLight;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.RandomXS128;
@@ -14,15 +12,20 @@ import io.github.necrashter.natural_revenge.world.Octree;
 import io.github.necrashter.natural_revenge.world.Terrain;
 
 public class LevelMenuBg extends GameWorld {
+    /**
+     * Turns of the camera around the clearing per second.
+     */
+    public static final float ORBIT_SPEED = .02f;
+    /**
+     * Center of the clearing at the height of the orbiting camera, where the baked background is seen from.
+     */
+    public static final Vector3 PANORAMA_POSITION = new Vector3(0f, 10f, 0f);
     private final Vector3 camDir = new Vector3();
 
     public LevelMenuBg(Main game) {
         super(game, -1, 1f);
 
-        environment.set(new ColorAttribute(ColorAttribute.AmbientLight, 0.2f, 0.25f, 0.2f, 1f));
-        environment.set(new ColorAttribute(ColorAttribute.Fog, 0.38f, 0.55f, 0.42f, 1f));
-
-        environment.add(new DirectionalLight().set(0.6f, 0.6f, 0.6f, -1f, -0.8f, -0.2f));
+        setLevelLighting(environment);
 
         RandomXS128 random = new RandomXS128(64);
         Perlin perlin = new Perlin();
@@ -47,8 +50,8 @@ public class LevelMenuBg extends GameWorld {
 
     @Override
     public void gameUpdate(float dt) {
-        cam.position.x = MathUtils.sin(MathUtils.PI2*time*.02f)*30f;
-        cam.position.z = MathUtils.cos(MathUtils.PI2*time*.02f)*30f;
+        cam.position.x = MathUtils.sin(MathUtils.PI2*time*ORBIT_SPEED)*30f;
+        cam.position.z = MathUtils.cos(MathUtils.PI2*time*ORBIT_SPEED)*30f;
         camDir.set(cam.position);
         camDir.x += MathUtils.sin(MathUtils.PI2*time*.04f)*10f;
         camDir.y -= 10f;
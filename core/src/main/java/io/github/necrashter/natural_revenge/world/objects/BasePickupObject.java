@@ -49,6 +49,7 @@ public abstract class BasePickupObject extends GameObject {
                         position.z
                 )
                 .rotateRad(Vector3.Y, t*MathUtils.PI);
+        invalidateBounds();
     }
 
     public BasePickupObject spawnAnimation() {
@@ -80,13 +81,14 @@ public abstract class BasePickupObject extends GameObject {
     }
 
     @Override
-    public void getMinPoint(Vector3 p) {
-        if (shape != null) shape.getMinPoint(model.transform, p);
-    }
-
-    @Override
-    public void getMaxPoint(Vector3 p) {
-        if (shape != null) shape.getMaxPoint(model.transform, p);
+    protected void computeBounds(Vector3 min, Vector3 max) {
+        if (shape != null) {
+            shape.getMinPoint(model.transform, min);
+            shape.getMaxPoint(model.transform, max);
+        } else {
+            model.transform.getTranslation(min);
+            max.set(min);
+        }
     }
 
     @Override
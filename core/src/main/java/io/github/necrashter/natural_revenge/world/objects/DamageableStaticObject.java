@@ -21,6 +21,7 @@ public class DamageableStaticObject extends StaticGameObject implements Damageab
         if ((health -= amount) <= 0.0f) {
             setRequiresUpdates(true);
             falling = true;
+            world.forestRevision++;
             return true;
         }
         return false;
@@ -28,7 +29,8 @@ public class DamageableStaticObject extends StaticGameObject implements Damageab
 
     @Override
     public void update(float delta) {
-        model.transform.translate(0, -5.0f * delta, 0);
+        transform.translate(0, -5.0f * delta, 0);
+        invalidateBounds();
         if ((fallTime += delta) >= 1.0f) {
             remove();
         } else {
@@ -47,13 +47,14 @@ public class FrogParticle extends GameObject implements Pool.Poolable {
     }
 
     @Override
-    public void getMinPoint(Vector3 p) {
-        if (shape != null) shape.getMinPoint(model.transform, p);
-    }
-
-    @Override
-    public void getMaxPoint(Vector3 p) {
-        if (shape != null) shape.getMaxPoint(model.transform, p);
+    protected void computeBounds(Vector3 min, Vector3 max) {
+        if (shape != null) {
+            shape.getMinPoint(model.transform, min);
+            shape.getMaxPoint(model.transform, max);
+        } else {
+            model.transform.getTranslation(min);
+            max.set(min);
+        }
     }
 
     @Override
@@ -84,12 +85,14 @@ public class FrogParticle extends GameObject implements Pool.Poolable {
 
     public void spawn() {
         model.transform.setToTranslation(position);
+        invalidateBounds();
     }
 
     @Override
     public void update(float delta) {
         position.mulAdd(velocity, delta);
         model.transform.setToTranslation(position);
+        invalidateBounds();
         lifetime -= delta;
         if (lifetime <= 0f) {
             remove();
@@ -1,7 +1,7 @@
 package io.github.necrashter.natural_revenge.world.objects;
 
 import com.badlogic.gdx.graphics.Camera;
-import com.badlogic.gdx.graphics.g3d.ModelInstance;
+import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.math.collision.Ray;
 import io.github.necrashter.natural_revenge.AssetManager2;
@@ -11,50 +11,59 @@ import io.github.necrashter.natural_revenge.world.entities.GameEntity;
 import io.github.necrashter.natural_revenge.world.GameObject;
 import io.github.necrashter.natural_revenge.world.GameWorld;
 
+/**
+ * A flyweight object: the model and shapes are shared through the template, only the transform is per object.
+ * Rendered in batches by {@link io.github.necrashter.natural_revenge.world.render.InstancedPropRenderer}.
+ */
 public class StaticGameObject extends GameObject implements Spatial {
-    public ModelInstance model;
+    public final AssetManager2.GameObjectTemplate template;
+    public final Matrix4 transform = new Matrix4();
     /**
      * NOTE: modelShape must encapsulate physicsShape.
      */
-    public Shape modelShape;
-    public Shape physicsShape;
+    public final Shape modelShape;
+    public final Shape physicsShape;
 
     public StaticGameObject(AssetManager2.GameObjectTemplate template) {
-        this.model = template.model.copy();
+        this.template = template;
         this.modelShape = template.modelShape;
         this.physicsShape = template.physicsShape;
     }
 
     public StaticGameObject(StaticGameObject copyFrom) {
-        this.model = new ModelInstance(copyFrom.model);
-        modelShape = copyFrom.modelShape;
-        physicsShape = copyFrom.physicsShape;
+        this(copyFrom.template);
+        transform.set(copyFrom.transform);
+        invalidateBounds();
     }
 
     public boolean isVisible(Camera cam) {
-        return modelShape != null && modelShape.isVisible(model.transform, cam);
+        if (modelShape == null) return false;
+        validateBounds();
+        return cam.frustum.boundsInFrustum(
+                (boundsMin.x + boundsMax.x) * 0.5f, (boundsMin.y + boundsMax.y) * 0.5f, (boundsMin.z + boundsMax.z) * 0.5f,
+                (boundsMax.x - boundsMin.x) * 0.5f, (boundsMax.y - boundsMin.y) * 0.5f, (boundsMax.z - boundsMin.z) * 0.5f);
     }
 
     public boolean isInViewDistance(Camera cam, float viewDistance) {
-        return modelShape != null && modelShape.isInViewDistance(model.transform, cam, viewDistance);
+        return modelShape != null && modelShape.isInViewDistance(transform, cam, viewDistance);
     }
 
     public float intersectsGetCenterDist2(Ray ray) {
-        return physicsShape == null ? Float.POSITIVE_INFINITY : physicsShape.intersectsGetCenterDist2(model.transform, ray);
+        return physicsShape == null ? Float.POSITIVE_INFINITY : physicsShape.intersectsGetCenterDist2(transform, ray);
     }
 
     public float intersectsGetRayT(Ray ray) {
-        return physicsShape == null ? Float.POSITIVE_INFINITY : physicsShape.intersectsGetRayT(model.transform, ray);
+        return physicsShape == null ? Float.POSITIVE_INFINITY : physicsShape.intersectsGetRayT(transform, ray);
     }
 
     public void hit(GameEntity entity) {
-        if (physicsShape != null) physicsShape.hit(model.transform, entity.hitBox);
+        if (physicsShape != null) physicsShape.hit(transform, entity.hitBox);
     }
 
     @Override
     public boolean moveCheck(GameEntity.MoveCheck moveCheck) {
         if (physicsShape == null) return false;
-        if (physicsShape.moveCheck(model.transform, moveCheck)) {
+        if (physicsShape.moveCheck(transform, moveCheck)) {
             moveCheck.object = this;
             return true;
         }
@@ -62,22 +71,29 @@ public class StaticGameObject extends GameObject implements Spatial {
     }
 
     @Override
-    public void getPosition(Vector3 p) {
-        model.transform.getTranslation(p);
+    public boolean isObstacle() {
+        return physicsShape != null;
     }
 
-    public void getMinPoint(Vector3 p) {
-        if (modelShape != null) modelShape.getMinPoint(model.transform, p);
+    @Override
+    public void getPosition(Vector3 p) {
+        transform.getTranslation(p);
     }
 
-    public void getMaxPoint(Vector3 p) {
-        if (modelShape != null) modelShape.getMaxPoint(model.transform, p);
+    @Override
+    protected void computeBounds(Vector3 min, Vector3 max) {
+        if (modelShape != null) {
+            modelShape.getMinPoint(transform, min);
+            modelShape.getMaxPoint(transform, max);
+        } else {
+            transform.getTranslation(min);
+            max.set(min);
+        }
     }
 
     public void render(GameWorld world) {
         if (isInViewDistance(world.cam, world.viewDistance) && isVisible(world.cam)) {
-            world.modelBatch.render(model, world.environment);
-            world.visibleCount++;
+            world.occlusionCuller.addCandidate(this);
         }
     }
 }
@@ -16,7 +16,7 @@ public class TreeObject extends DamageableStaticObject {
             amount *= 3;
             world.playSound(
                     Main.assets.woodCuts[MathUtils.random.nextInt(Main.assets.woodCuts.length)],
-                    model.transform.getTranslation(tempPos)
+                    transform.getTranslation(tempPos)
             );
         }
         return super.takeDamage(amount, agent, source);
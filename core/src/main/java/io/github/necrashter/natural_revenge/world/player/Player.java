@@ -242,6 +242,7 @@ public class Player extends GameEntity {
     public static final Vector3 shootTarget = new Vector3();
     public void castShootRay(float spread) {
         shootRay = getAim();
+        shootRay.origin.set(hitBox.position).add(0, CAMERA_HEIGHT, 0);
         shootRay.direction.add(MathUtils.random(-spread, spread), MathUtils.random(-spread, spread), MathUtils.random(-spread, spread)).nor();
         shootIntersection.set(world.intersectRay(shootRay, this));
     }
@@ -254,32 +255,24 @@ public class Player extends GameEntity {
         jump(jumpVelocity);
     }
 
-    @Override
-    public void update(float delta) {
+    /**
+     * Called once per frame before the ticks, since key presses last for a frame.
+     */
+    public void pollInput(float delta) {
         if (!inputAdapter.disabled) inputAdapter.update(delta);
-        aim = getAim();
-        aimIntersection.set(world.intersectRay(aim, this));
-
-        camera.direction.set(forward);
-        camera.up.set(Vector3.Y);
-        tmpV1.set(forward).crs(Vector3.Y);
-        camera.rotate(tmpV1.nor(), pitch);
+    }
 
+    @Override
+    public void tick(float delta) {
+        tmpV1.set(forward).crs(Vector3.Y).nor();
         movement.set(movementInput.x * forward.x + movementInput.y * tmpV1.x, 0, movementInput.x * forward.z + movementInput.y * tmpV1.z);
         if (movement.len2() > 1) movement.nor();
         movement.scl(activeWeapon != null ? (movementSpeed * activeWeapon.speedMod) : (movementSpeed*1.75f));
 
-        super.update(delta);
-
-        camera.position.set(hitBox.position);
-        camera.position.add(0, CAMERA_HEIGHT, 0);
-
-        camera.update();
+        super.tick(delta);
 
         if (activeWeapon != null) {
             activeWeapon.update(delta);
-            // activeWeapon may become null in update
-            if (activeWeapon != null) activeWeapon.setView(camera);
         } else {
             noWeaponTimer -= delta;
             if (noWeaponTimer <= 0f) {
@@ -290,6 +283,27 @@ public class Player extends GameEntity {
         pitchMod = Math.max(.0f, pitchMod - 10.f * pitchMod * delta);
     }
 
+    /**
+     * Camera, view model and the aim ray used for hover info are updated once per frame here.
+     * Shots fired in ticks use the camera of the last frame, but from the position of the current tick.
+     */
+    @Override
+    public void present(float alpha) {
+        super.present(alpha);
+        camera.direction.set(forward);
+        camera.up.set(Vector3.Y);
+        tmpV1.set(forward).crs(Vector3.Y);
+        camera.rotate(tmpV1.nor(), pitch);
+        camera.position.set(renderPosition);
+        camera.position.add(0, CAMERA_HEIGHT, 0);
+        camera.update();
+
+        aim = getAim();
+        aimIntersection.set(world.intersectRay(aim, this));
+
+        if (activeWeapon != null) activeWeapon.setView(camera);
+    }
+
     public void renderViewModel(GameWorld world) {
         if (activeWeapon != null) {
             activeWeapon.render(world);
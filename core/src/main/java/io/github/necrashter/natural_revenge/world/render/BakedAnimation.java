@@ -0,0 +1,208 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.ModelInstance;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.model.Animation;
+import com.badlogic.gdx.graphics.g3d.utils.BaseAnimationController;
+import com.badlogic.gdx.graphics.glutils.FloatTextureData;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Skeletal animations of a model (restricted to the given root nodes) sampled into a bone matrix texture.
+ * <p>
+ * Each row of the texture is one pose. Each bone takes 3 texels, which hold the upper 3 rows of its matrix.
+ * Bones of all skinned mesh parts are laid out side by side, see {@link #getBoneOffset(int)}.
+ * Row 0 is the rest pose, the rest are the frames of the clips sampled at {@link #FPS}.
+ * <p>
+ * Baking requires float textures in vertex shaders, so it is only done with GL30.
+ * Otherwise {@link #isBaked()} returns false and NPCs are skinned on CPU, sharing poses through {@link #poseCache}.
+ */
+public class BakedAnimation implements Disposable {
+    public static final float FPS = 30f;
+
+    public final Model model;
+    private final String[] rootNodeIds;
+    /**
+     * Used as the source of renderables when drawing. Always in rest pose.
+     */
+    public final ModelInstance template;
+    /**
+     * Null if baked or if some parts aren't skinned.
+     */
+    public final PoseCache poseCache;
+    private final ObjectMap<String, Clip> clips = new ObjectMap<>();
+    private final Array<Renderable> renderables = new Array<>();
+    private int[] boneOffsets;
+    private Texture boneTexture = null;
+    private int totalBones, rows;
+
+    public static class Clip {
+        public final int startRow;
+        public final int frames;
+
+        Clip(int startRow, int frames) {
+            this.startRow = startRow;
+            this.frames = frames;
+        }
+
+        /**
+         * @return Fractional row of the given clip time.
+         */
+        public float getRow(float time) {
+            return startRow + MathUtils.clamp(time * FPS, 0f, frames - 1);
+        }
+    }
+
+    public BakedAnimation(Model model, String... rootNodeIds) {
+        this.model = model;
+        this.rootNodeIds = rootNodeIds;
+        template = createInstance();
+        template.getRenderables(renderables, new Pool<Renderable>() {
+            @Override
+            protected Renderable newObject() {
+                return new Renderable();
+            }
+        });
+        boneOffsets = new int[renderables.size];
+        boolean skinned = true;
+        for (int i = 0; i < renderables.size; ++i) {
+            boneOffsets[i] = totalBones;
+            Matrix4[] bones = renderables.get(i).bones;
+            if (bones != null) totalBones += bones.length;
+            else skinned = false;
+        }
+        // Instanced skinning requires every part to be skinned.
+        if (Gdx.gl30 != null && skinned && totalBones > 0) bake();
+        poseCache = !isBaked() && skinned && totalBones > 0 ? new PoseCache(template) : null;
+    }
+
+    public ModelInstance createInstance() {
+        return new ModelInstance(model, rootNodeIds);
+    }
+
+    public boolean isBaked() {
+        return boneTexture != null;
+    }
+
+    public Texture getBoneTexture() {
+        return boneTexture;
+    }
+
+    public int getTextureWidth() {
+        return totalBones * 3;
+    }
+
+    public int getTextureHeight() {
+        return rows;
+    }
+
+    /**
+     * Renderables of {@link #template}, in the order used by {@link #getBoneOffset(int)}.
+     */
+    public Array<Renderable> getRenderables() {
+        return renderables;
+    }
+
+    /**
+     * @param renderableIndex Index in {@link #getRenderables()}.
+     * @return Index of the first bone of this renderable in a texture row.
+     */
+    public int getBoneOffset(int renderableIndex) {
+        return boneOffsets[renderableIndex];
+    }
+
+    /**
+     * @return Baked clip with given id, or null.
+     */
+    public Clip getClip(String id) {
+        return clips.get(id);
+    }
+
+    /**
+     * Applies single animations on a scratch instance.
+     */
+    private static class Sampler extends BaseAnimationController {
+        Sampler(ModelInstance target) {
+            super(target);
+        }
+
+        void sample(Animation animation, float time) {
+            applyAnimation(animation, time);
+        }
+    }
+
+    private void bake() {
+        ModelInstance instance = createInstance();
+        Sampler sampler = new Sampler(instance);
+        Array<Renderable> sampleRenderables = new Array<>();
+        Pool<Renderable> pool = new Pool<Renderable>() {
+            @Override
+            protected Renderable newObject() {
+                return new Renderable();
+            }
+        };
+
+        rows = 1;
+        for (Animation animation : instance.animations) {
+            int frames = MathUtils.ceil(animation.duration * FPS) + 1;
+            clips.put(animation.id, new Clip(rows, frames));
+            rows += frames;
+        }
+
+        FloatTextureData data = new FloatTextureData(getTextureWidth(), rows,
+                GL30.GL_RGBA32F, GL20.GL_RGBA, GL20.GL_FLOAT, false);
+        data.prepare();
+        FloatBuffer buffer = data.getBuffer();
+
+        instance.calculateTransforms();
+        writeRow(instance, sampleRenderables, pool, buffer);
+        for (Animation animation : instance.animations) {
+            int frames = clips.get(animation.id).frames;
+            for (int frame = 0; frame < frames; ++frame) {
+                PoseCache.resetPose(instance.nodes);
+                sampler.sample(animation, Math.min(frame / FPS, animation.duration));
+                writeRow(instance, sampleRenderables, pool, buffer);
+            }
+        }
+        buffer.flip();
+
+        boneTexture = new Texture(data);
+        boneTexture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+    }
+
+    private static void writeRow(ModelInstance instance, Array<Renderable> out, Pool<Renderable> pool,
+                                 FloatBuffer buffer) {
+        instance.getRenderables(out, pool);
+        for (Renderable renderable : out) {
+            if (renderable.bones == null) continue;
+            for (Matrix4 bone : renderable.bones) {
+                float[] m = bone.val;
+                buffer.put(m[Matrix4.M00]).put(m[Matrix4.M01]).put(m[Matrix4.M02]).put(m[Matrix4.M03]);
+                buffer.put(m[Matrix4.M10]).put(m[Matrix4.M11]).put(m[Matrix4.M12]).put(m[Matrix4.M13]);
+                buffer.put(m[Matrix4.M20]).put(m[Matrix4.M21]).put(m[Matrix4.M22]).put(m[Matrix4.M23]);
+            }
+        }
+        pool.freeAll(out);
+        out.clear();
+    }
+
+    @Override
+    public void dispose() {
+        if (boneTexture != null) {
+            boneTexture.dispose();
+            boneTexture = null;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.graphics.g3d.ModelInstance;
+import com.badlogic.gdx.graphics.g3d.model.Animation;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.graphics.g3d.utils.AnimationController;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * AnimationController that keeps the usual playback logic (queues, transitions, listeners) but doesn't pose the
+ * target when a {@link BakedAnimation} is available. Instead, it records the rows of the bone texture that the
+ * skinned instance shader should blend.
+ * <p>
+ * When the animation isn't baked, single clip poses are shared with other instances through the {@link PoseCache}.
+ */
+public class BakedAnimationController extends AnimationController {
+    public final BakedAnimation baked;
+    /**
+     * Fractional rows to blend in the bone texture and the blend weight.
+     */
+    public float rowA = 0f, rowB = 0f, blend = 0f;
+
+    private final PoseCache poseCache;
+    /**
+     * Skinned node parts of the target and their own bone arrays, which are used when the pose isn't shared.
+     */
+    private final Array<NodePart> skinnedParts = new Array<>();
+    private final Array<Matrix4[]> ownBones = new Array<>();
+    private boolean usingOwnBones = true;
+    /**
+     * Offset of looping clips in {@link PoseCache} quanta.
+     */
+    private final int phaseSlot = MathUtils.random(PoseCache.PHASE_SLOTS - 1);
+
+    /**
+     * @param baked Pose is computed on CPU if null or not baked.
+     */
+    public BakedAnimationController(ModelInstance target, BakedAnimation baked) {
+        super(target);
+        this.baked = baked != null && baked.isBaked() ? baked : null;
+        poseCache = this.baked == null && baked != null ? baked.poseCache : null;
+        if (poseCache != null) {
+            PoseCache.collectSkinnedParts(target.nodes, skinnedParts);
+            for (NodePart part : skinnedParts) {
+                ownBones.add(part.bones);
+            }
+        }
+    }
+
+    private void useOwnBones() {
+        if (usingOwnBones) return;
+        for (int i = 0; i < skinnedParts.size; ++i) {
+            skinnedParts.get(i).bones = ownBones.get(i);
+        }
+        usingOwnBones = true;
+    }
+
+    private void applyCachedAnimation(Animation animation, float time) {
+        if (current != null && current.animation == animation && current.loopCount < 0 && animation.duration > 0f) {
+            time = (time + phaseSlot * poseCache.getTimeQuantum()) % animation.duration;
+        }
+        PoseCache.Pose pose = poseCache.get(animation, time);
+        if (!pose.isComputed()) {
+            useOwnBones();
+            PoseCache.resetPose(target.nodes);
+            super.applyAnimation(animation, pose.time);
+            poseCache.store(pose, ownBones);
+        }
+        for (int i = 0; i < skinnedParts.size; ++i) {
+            skinnedParts.get(i).bones = pose.bones[i];
+        }
+        usingOwnBones = false;
+    }
+
+    /**
+     * Apply every animation of the target once so that the shared poses are computed before they are first played.
+     * The current animation is applied again afterwards.
+     */
+    public void warmup() {
+        for (Animation animation : target.animations) {
+            if (poseCache == null) {
+                applyAnimation(animation, 0f);
+                continue;
+            }
+            for (float time = 0f; time < animation.duration; time += poseCache.getTimeQuantum()) {
+                applyCachedAnimation(animation, time);
+            }
+        }
+        if (current != null && current.animation != null) {
+            applyAnimation(current.animation, current.offset + current.time);
+        }
+    }
+
+    public boolean isBaked() {
+        return baked != null;
+    }
+
+    private float getRow(Animation animation, float time) {
+        BakedAnimation.Clip clip = baked.getClip(animation.id);
+        return clip == null ? 0f : clip.getRow(time);
+    }
+
+    @Override
+    protected void applyAnimation(Animation animation, float time) {
+        if (baked == null) {
+            if (poseCache != null) {
+                applyCachedAnimation(animation, time);
+            } else {
+                super.applyAnimation(animation, time);
+            }
+            return;
+        }
+        rowA = getRow(animation, time);
+        rowB = rowA;
+        blend = 0f;
+    }
+
+    @Override
+    protected void applyAnimations(Animation anim1, float time1, Animation anim2, float time2, float weight) {
+        if (baked == null) {
+            if (poseCache != null && anim1 != null && anim2 != null && weight != 0f && weight != 1f) {
+                // Blended poses are not shared.
+                useOwnBones();
+            }
+            super.applyAnimations(anim1, time1, anim2, time2, weight);
+            return;
+        }
+        if (anim2 == null || weight == 0f) {
+            applyAnimation(anim1, time1);
+        } else if (anim1 == null || weight == 1f) {
+            applyAnimation(anim2, time2);
+        } else {
+            // Frames within each clip are rounded so that a transition is a single blend in the shader.
+            rowA = Math.round(getRow(anim1, time1));
+            rowB = Math.round(getRow(anim2, time2));
+            blend = weight;
+        }
+    }
+}
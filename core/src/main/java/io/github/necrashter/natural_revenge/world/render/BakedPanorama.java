@@ -0,0 +1,179 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.Cubemap;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.PerspectiveCamera;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ScreenUtils;
+import io.github.necrashter.natural_revenge.Main;
+import io.github.necrashter.natural_revenge.world.GameWorld;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Menu background baked into a cubemap, so that the scene is rendered only once.
+ * <p>
+ * The faces are stored uncompressed in a local file and loaded on the next launch. Local files are not available on
+ * the web, so it's baked on every launch there, and the live background is the default.
+ */
+public class BakedPanorama implements Disposable {
+    public static final int FACE_SIZE = 384;
+    public static final String CACHE_FILE = "menu_panorama.bin";
+    /**
+     * Increase when the baked scene changes so that the old files are not used.
+     */
+    public static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int FACE_BYTES = FACE_SIZE * FACE_SIZE * 4;
+
+    private final Cubemap cubemap;
+    private final Mesh quad;
+    private final ShaderProgram shader;
+
+    private BakedPanorama(Pixmap[] faces) {
+        cubemap = new Cubemap(faces[0], faces[1], faces[2], faces[3], faces[4], faces[5]);
+        cubemap.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        for (Pixmap face : faces) {
+            face.dispose();
+        }
+        quad = new Mesh(true, 4, 0,
+                new VertexAttribute(VertexAttributes.Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE));
+        quad.setVertices(new float[]{-1f, -1f, 1f, -1f, -1f, 1f, 1f, 1f});
+        shader = Main.gpuCache.acquireProgram("shaders/panorama.vert", "shaders/panorama.frag");
+    }
+
+    private static FileHandle getCacheFile() {
+        if (Gdx.app.getType() == Application.ApplicationType.WebGL || !Gdx.files.isLocalStorageAvailable()) {
+            return null;
+        }
+        return Gdx.files.local(CACHE_FILE);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16
+                | (bytes[offset + 2] & 0xff) << 8 | (bytes[offset + 3] & 0xff);
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Pixels are uploaded with {@link Pixmap#setPixels}, since the buffer returned by {@link Pixmap#getPixels()}
+     * doesn't write through on every backend.
+     */
+    private static Pixmap createFace(byte[] bytes, int offset, ByteBuffer buffer) {
+        buffer.clear();
+        buffer.put(bytes, offset, FACE_BYTES);
+        buffer.flip();
+        Pixmap face = new Pixmap(FACE_SIZE, FACE_SIZE, Pixmap.Format.RGBA8888);
+        face.setPixels(buffer);
+        return face;
+    }
+
+    /**
+     * @return Panorama from the cache file, or null if there is no valid one.
+     */
+    public static BakedPanorama load() {
+        FileHandle file = getCacheFile();
+        if (file == null || !file.exists() || file.length() != HEADER_SIZE + 6L * FACE_BYTES) return null;
+        byte[] bytes;
+        try {
+            bytes = file.readBytes();
+        } catch (GdxRuntimeException e) {
+            Gdx.app.error("BakedPanorama", "Cannot read " + CACHE_FILE, e);
+            return null;
+        }
+        if (readInt(bytes, 0) != VERSION || readInt(bytes, 4) != FACE_SIZE) return null;
+        Pixmap[] faces = new Pixmap[6];
+        ByteBuffer buffer = BufferUtils.newByteBuffer(FACE_BYTES);
+        for (int i = 0; i < 6; ++i) {
+            faces[i] = createFace(bytes, HEADER_SIZE + i * FACE_BYTES, buffer);
+        }
+        return new BakedPanorama(faces);
+    }
+
+    /**
+     * Render the six faces of the world as seen from the given position and save them to the cache file.
+     * The camera of the world is changed.
+     */
+    public static BakedPanorama bake(GameWorld world, Vector3 position) {
+        PerspectiveCamera cam = world.cam;
+        cam.fieldOfView = 90f;
+        cam.viewportWidth = FACE_SIZE;
+        cam.viewportHeight = FACE_SIZE;
+        cam.position.set(position);
+        byte[] bytes = new byte[HEADER_SIZE + 6 * FACE_BYTES];
+        writeInt(bytes, 0, VERSION);
+        writeInt(bytes, 4, FACE_SIZE);
+        Pixmap[] faces = new Pixmap[6];
+        ByteBuffer buffer = BufferUtils.newByteBuffer(FACE_BYTES);
+
+        FrameBuffer frameBuffer = Main.gpuCache.acquireFrameBuffer(Pixmap.Format.RGBA8888, FACE_SIZE, FACE_SIZE, true);
+        for (Cubemap.CubemapSide side : Cubemap.CubemapSide.values()) {
+            side.getDirection(cam.direction);
+            side.getUp(cam.up);
+            cam.update();
+            frameBuffer.begin();
+            world.render();
+            // Not flipped, so that the rows are in the same order as when rendering into the face directly.
+            byte[] pixels = ScreenUtils.getFrameBufferPixels(0, 0, FACE_SIZE, FACE_SIZE, false);
+            frameBuffer.end();
+            for (int i = 3; i < pixels.length; i += 4) {
+                // Blended objects leave transparent pixels.
+                pixels[i] = (byte) 255;
+            }
+            System.arraycopy(pixels, 0, bytes, HEADER_SIZE + side.index * FACE_BYTES, FACE_BYTES);
+            faces[side.index] = createFace(pixels, 0, buffer);
+        }
+        Main.gpuCache.release(frameBuffer);
+
+        FileHandle file = getCacheFile();
+        if (file != null) {
+            try {
+                file.writeBytes(bytes, false);
+            } catch (GdxRuntimeException e) {
+                Gdx.app.error("BakedPanorama", "Cannot write " + CACHE_FILE, e);
+            }
+        }
+        return new BakedPanorama(faces);
+    }
+
+    /**
+     * Draw the panorama over the whole viewport as seen by the camera. Only the rotation of the camera matters.
+     */
+    public void render(Camera camera) {
+        Gdx.gl.glDisable(GL20.GL_DEPTH_TEST);
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+        cubemap.bind(0);
+        shader.bind();
+        shader.setUniformMatrix("u_invProjView", camera.invProjectionView);
+        shader.setUniformf("u_cameraPosition", camera.position);
+        shader.setUniformi("u_cubemap", 0);
+        quad.render(shader, GL20.GL_TRIANGLE_STRIP);
+    }
+
+    @Override
+    public void dispose() {
+        cubemap.dispose();
+        quad.dispose();
+        Main.gpuCache.release(shader);
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Picks the internal resolution scale from the measured frame time.
+ * <p>
+ * The scale changes in steps of {@link #STEP}. It goes down quickly when frames are over budget, and goes up slowly
+ * when they have been within budget for a while. After the scale goes up and has to come back down, the wait before
+ * trying again is doubled, so the scale doesn't keep oscillating around a step that the device can't sustain.
+ */
+public class DynamicResolution {
+    public static final float STEP = 0.125f;
+    public static final float DEFAULT_TARGET_FRAME_TIME = 1f / 60f;
+    /**
+     * Frame time is considered over budget above this multiple of the target.
+     */
+    public static final float OVER_BUDGET = 1.15f;
+    /**
+     * Frame time is considered within budget below this multiple of the target. It's above 1 since frame time is
+     * close to the target with vertical sync.
+     */
+    public static final float UNDER_BUDGET = 1.05f;
+    public static final float DOWN_DELAY = 0.5f;
+    public static final float UP_DELAY = 2f;
+    public static final float MAX_UP_DELAY = 32f;
+
+    public float targetFrameTime = DEFAULT_TARGET_FRAME_TIME;
+    private float minScale, maxScale;
+    private float scale;
+    private float smoothedFrameTime;
+    private float overTime = 0f, underTime = 0f;
+    private float upDelay = UP_DELAY;
+    private boolean lastChangeUp = false;
+
+    public DynamicResolution(float minScale, float maxScale) {
+        setRange(minScale, maxScale);
+        scale = this.maxScale;
+        smoothedFrameTime = targetFrameTime;
+    }
+
+    public void setRange(float minScale, float maxScale) {
+        this.minScale = minScale;
+        this.maxScale = Math.max(minScale, maxScale);
+        scale = MathUtils.clamp(scale, this.minScale, this.maxScale);
+    }
+
+    public float getMinScale() {
+        return minScale;
+    }
+
+    public float getMaxScale() {
+        return maxScale;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public float getSmoothedFrameTime() {
+        return smoothedFrameTime;
+    }
+
+    /**
+     * @param frameTime Duration of the last frame in seconds.
+     * @return True if the scale is changed.
+     */
+    public boolean update(float frameTime) {
+        // Ignore loading hitches and pauses.
+        if (frameTime <= 0f || frameTime > 0.25f) return false;
+        smoothedFrameTime = MathUtils.lerp(smoothedFrameTime, frameTime, 0.1f);
+
+        if (smoothedFrameTime > targetFrameTime * OVER_BUDGET) {
+            overTime += frameTime;
+            underTime = 0f;
+            if (overTime >= DOWN_DELAY && scale > minScale) {
+                if (lastChangeUp) upDelay = Math.min(upDelay * 2f, MAX_UP_DELAY);
+                return setScale(scale - STEP, false);
+            }
+        } else if (smoothedFrameTime < targetFrameTime * UNDER_BUDGET) {
+            underTime += frameTime;
+            overTime = 0f;
+            if (underTime >= upDelay && scale < maxScale) {
+                return setScale(scale + STEP, true);
+            }
+        } else {
+            overTime = 0f;
+            underTime = 0f;
+        }
+        return false;
+    }
+
+    private boolean setScale(float newScale, boolean up) {
+        scale = MathUtils.clamp(newScale, minScale, maxScale);
+        lastChangeUp = up;
+        overTime = 0f;
+        underTime = 0f;
+        // Start over with the target frame time so that the next step waits for new measurements.
+        smoothedFrameTime = targetFrameTime;
+        return true;
+    }
+}
@@ -0,0 +1,240 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.decals.CameraGroupStrategy;
+import com.badlogic.gdx.graphics.g3d.decals.DecalBatch;
+import com.badlogic.gdx.graphics.g3d.shaders.DefaultShader;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Process-wide cache of GPU resources, so that switching or restarting levels doesn't recompile shaders or
+ * reallocate frame buffers and batches.
+ * <p>
+ * Ownership is explicit: each acquired object must be given back with {@link #release(Object)} instead of being
+ * disposed.
+ * <ul>
+ *     <li>Shaders are shared and keyed by their full source, including the prefix with the flags. They stay compiled
+ *     after the last release.</li>
+ *     <li>Frame buffers and batches are exclusive. A released one is kept in a free list and handed out to the next
+ *     acquire with the same parameters. At most {@link #MAX_FREE} of them are kept.</li>
+ * </ul>
+ * Everything is disposed in {@link #dispose()} when the application exits.
+ */
+public class GpuResourceCache implements Disposable {
+    public static final int MAX_FREE = 8;
+
+    private static class Entry {
+        final String key;
+        final Disposable resource;
+        final boolean shared;
+        /**
+         * Strategy of a DecalBatch, which owns a shader and can't be obtained from the batch.
+         */
+        CameraGroupStrategy strategy = null;
+        int references = 0;
+
+        Entry(String key, Disposable resource, boolean shared) {
+            this.key = key;
+            this.resource = resource;
+            this.shared = shared;
+        }
+    }
+
+    private final ObjectMap<String, Entry> shaders = new ObjectMap<>();
+    private final IdentityMap<Object, Entry> entries = new IdentityMap<>();
+    /**
+     * Released exclusive resources, oldest first.
+     */
+    private final Array<Entry> free = new Array<>();
+    private final ObjectMap<String, String> sources = new ObjectMap<>();
+
+    /**
+     * Statistics.
+     */
+    public int created, reused;
+
+    private String readSource(String path) {
+        String source = sources.get(path);
+        if (source == null) {
+            source = Gdx.files.internal(path).readString();
+            sources.put(path, source);
+        }
+        return source;
+    }
+
+    private Entry acquireShared(String key) {
+        Entry entry = shaders.get(key);
+        if (entry == null) return null;
+        entry.references++;
+        reused++;
+        return entry;
+    }
+
+    private void addShared(String key, Disposable resource) {
+        Entry entry = new Entry(key, resource, true);
+        entry.references = 1;
+        shaders.put(key, entry);
+        entries.put(resource, entry);
+        created++;
+    }
+
+    /**
+     * @param vertexPath Internal path of the vertex shader.
+     * @param fragmentPath Internal path of the fragment shader.
+     */
+    public ShaderProgram acquireProgram(String vertexPath, String fragmentPath) {
+        String vertexShader = readSource(vertexPath);
+        String fragmentShader = readSource(fragmentPath);
+        String key = vertexShader + '\0' + fragmentShader;
+        Entry entry = acquireShared(key);
+        if (entry != null) return (ShaderProgram) entry.resource;
+        ShaderProgram program = new ShaderProgram(vertexShader, fragmentShader);
+        if (!program.isCompiled()) {
+            String log = program.getLog();
+            program.dispose();
+            throw new GdxRuntimeException(vertexPath + ", " + fragmentPath + ": " + log);
+        }
+        addShared(key, program);
+        return program;
+    }
+
+    /**
+     * Shaders with the same prefix and sources can render the same kind of renderables,
+     * since the prefix holds all flags that DefaultShader derives from the renderable.
+     * @param renderable Used to create the shader if it's not in the cache.
+     * @param prefix Usually {@link DefaultShader#createPrefix(Renderable, DefaultShader.Config)} and extra defines.
+     * @return Initialized shader.
+     */
+    public DefaultShader acquireDefaultShader(Renderable renderable, DefaultShader.Config config, String prefix) {
+        String key = prefix + '\0' + config.vertexShader + '\0' + config.fragmentShader;
+        Entry entry = acquireShared(key);
+        if (entry != null) return (DefaultShader) entry.resource;
+        DefaultShader shader = new DefaultShader(renderable, config, prefix);
+        shader.init();
+        addShared(key, shader);
+        return shader;
+    }
+
+    private Entry acquireFree(String key) {
+        for (int i = 0; i < free.size; ++i) {
+            Entry entry = free.get(i);
+            if (entry.key.equals(key)) {
+                free.removeIndex(i);
+                entry.references = 1;
+                reused++;
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private Entry addExclusive(String key, Disposable resource) {
+        Entry entry = new Entry(key, resource, false);
+        entry.references = 1;
+        entries.put(resource, entry);
+        created++;
+        return entry;
+    }
+
+    public FrameBuffer acquireFrameBuffer(Pixmap.Format format, int width, int height, boolean hasDepth) {
+        String key = "FrameBuffer " + format + ' ' + width + 'x' + height + (hasDepth ? " depth" : "");
+        Entry entry = acquireFree(key);
+        if (entry != null) return (FrameBuffer) entry.resource;
+        FrameBuffer frameBuffer = new FrameBuffer(format, width, height, hasDepth);
+        addExclusive(key, frameBuffer);
+        return frameBuffer;
+    }
+
+    public SpriteBatch acquireSpriteBatch() {
+        Entry entry = acquireFree("SpriteBatch");
+        if (entry != null) return (SpriteBatch) entry.resource;
+        SpriteBatch batch = new SpriteBatch();
+        addExclusive("SpriteBatch", batch);
+        return batch;
+    }
+
+    public RenderQueue acquireRenderQueue() {
+        Entry entry = acquireFree("RenderQueue");
+        if (entry != null) return (RenderQueue) entry.resource;
+        RenderQueue queue = new RenderQueue();
+        addExclusive("RenderQueue", queue);
+        return queue;
+    }
+
+    /**
+     * @param camera Camera of the {@link CameraGroupStrategy}.
+     */
+    public DecalBatch acquireDecalBatch(Camera camera) {
+        Entry entry = acquireFree("DecalBatch");
+        if (entry != null) {
+            entry.strategy.setCamera(camera);
+            return (DecalBatch) entry.resource;
+        }
+        CameraGroupStrategy strategy = new CameraGroupStrategy(camera);
+        DecalBatch batch = new DecalBatch(strategy);
+        addExclusive("DecalBatch", batch).strategy = strategy;
+        return batch;
+    }
+
+    /**
+     * Give back a resource obtained from this cache. It must not be used afterwards.
+     */
+    public void release(Object resource) {
+        if (resource == null) return;
+        Entry entry = entries.get(resource);
+        if (entry == null || entry.references <= 0) {
+            throw new GdxRuntimeException("Released a resource that isn't acquired: " + resource);
+        }
+        entry.references--;
+        if (entry.shared || entry.references > 0) return;
+        free.add(entry);
+        while (free.size > MAX_FREE) {
+            disposeEntry(free.removeIndex(0));
+        }
+    }
+
+    private void disposeEntry(Entry entry) {
+        entries.remove(entry.resource);
+        entry.resource.dispose();
+        if (entry.strategy != null) entry.strategy.dispose();
+    }
+
+    /**
+     * Dispose the resources that are not in use. Called when the application is paused.
+     */
+    public void trim() {
+        for (Entry entry : free) {
+            disposeEntry(entry);
+        }
+        free.clear();
+        Array<String> unused = new Array<>();
+        for (ObjectMap.Entry<String, Entry> e : shaders) {
+            if (e.value.references == 0) unused.add(e.key);
+        }
+        for (String key : unused) {
+            disposeEntry(shaders.remove(key));
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for (Entry entry : entries.values()) {
+            entry.resource.dispose();
+            if (entry.strategy != null) entry.strategy.dispose();
+        }
+        entries.clear();
+        shaders.clear();
+        free.clear();
+        sources.clear();
+    }
+}
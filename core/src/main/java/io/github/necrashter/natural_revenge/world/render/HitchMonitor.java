@@ -0,0 +1,75 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Counts frames that take much longer than the ones before them, e.g. when a shader is compiled or a texture is
+ * uploaded for the first time in the middle of the game.
+ */
+public class HitchMonitor {
+    /**
+     * A frame is a hitch if it takes this many times the average frame time.
+     */
+    public static final float HITCH_FACTOR = 2.5f;
+    /**
+     * Frames shorter than this are never hitches, regardless of the average.
+     */
+    public static final float MIN_HITCH_TIME = 1f / 20f;
+    /**
+     * The first frames are ignored since they include the time it took to load the level.
+     */
+    public static final int SETTLE_FRAMES = 10;
+
+    public int frames, hitches;
+    public float worstFrameTime;
+    private float averageFrameTime;
+    private boolean skipNext = false;
+
+    public HitchMonitor() {
+        reset();
+    }
+
+    public void reset() {
+        frames = 0;
+        hitches = 0;
+        worstFrameTime = 0f;
+        averageFrameTime = 1f / 60f;
+        skipNext = false;
+    }
+
+    /**
+     * Ignore the next frame, e.g. when it includes a pause.
+     */
+    public void skipNext() {
+        skipNext = true;
+    }
+
+    /**
+     * @param frameTime Duration of the last frame in seconds.
+     * @return True if the frame is a hitch.
+     */
+    public boolean record(float frameTime) {
+        if (skipNext) {
+            skipNext = false;
+            return false;
+        }
+        if (frames++ < SETTLE_FRAMES) {
+            averageFrameTime = frameTime;
+            return false;
+        }
+        worstFrameTime = Math.max(worstFrameTime, frameTime);
+        if (frameTime > MIN_HITCH_TIME && frameTime > averageFrameTime * HITCH_FACTOR) {
+            // Hitches are not included in the average.
+            hitches++;
+            return true;
+        }
+        averageFrameTime = MathUtils.lerp(averageFrameTime, frameTime, 0.05f);
+        return false;
+    }
+
+    public void buildText(StringBuilder stringBuilder) {
+        stringBuilder.append("Hitches: ").append(hitches)
+                .append(" in ").append(Math.max(0, frames - SETTLE_FRAMES)).append(" frames")
+                .append(", worst ").append(MathUtils.round(worstFrameTime * 1000f)).append(" ms");
+    }
+}
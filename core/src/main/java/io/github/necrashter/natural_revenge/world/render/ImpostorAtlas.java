@@ -0,0 +1,183 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.ModelBatch;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ScreenUtils;
+import io.github.necrashter.natural_revenge.AssetManager2;
+import io.github.necrashter.natural_revenge.world.objects.StaticGameObject;
+
+/**
+ * Impostor of a prop template: the template is rendered from {@link #ANGLES} directions around the Y axis into a
+ * texture atlas once, then distant props are drawn as camera-facing quads showing the closest baked direction.
+ */
+public class ImpostorAtlas implements Disposable {
+    public static final int ANGLES = 8;
+    public static final int CELL_HEIGHT = 128;
+    /**
+     * Position (3), UV (2), LOD fade (1).
+     */
+    private static final int FLOATS_PER_VERTEX = 6;
+    private static final int FLOATS_PER_QUAD = FLOATS_PER_VERTEX * 4;
+    private static final BoundingBox tempBox = new BoundingBox();
+    private static final Vector3 tempCenter = new Vector3();
+    private static final Vector3 tempDir = new Vector3();
+
+    private final FrameBuffer frameBuffer;
+    public final Texture texture;
+    /**
+     * Center of the bounding box and half extents of the quad in template space.
+     */
+    private final Vector3 center = new Vector3();
+    private final float radius, halfHeight;
+
+    private Mesh mesh;
+    private int capacity = 0;
+    private float[] vertices;
+    private int quadCount = 0;
+
+    /**
+     * Bake the atlas. Lighting of the given environment is baked in, fog is left to the impostor shader.
+     */
+    public ImpostorAtlas(AssetManager2.GameObjectTemplate template, Environment environment) {
+        template.model.calculateBoundingBox(tempBox);
+        tempBox.getCenter(center);
+        radius = 0.5f * (float) Math.sqrt(tempBox.getWidth() * tempBox.getWidth() + tempBox.getDepth() * tempBox.getDepth());
+        halfHeight = 0.5f * tempBox.getHeight();
+        int cellWidth = MathUtils.clamp(MathUtils.ceil(CELL_HEIGHT * radius / halfHeight), 8, 2 * CELL_HEIGHT);
+
+        Environment bakeEnvironment = new Environment();
+        bakeEnvironment.set(environment);
+        bakeEnvironment.remove(ColorAttribute.Fog);
+
+        OrthographicCamera camera = new OrthographicCamera(2f * radius, 2f * halfHeight);
+        camera.near = 0.1f;
+        camera.far = 2f * radius + 1f;
+
+        frameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, cellWidth * ANGLES, CELL_HEIGHT, true);
+        texture = frameBuffer.getColorBufferTexture();
+        texture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+
+        ModelBatch modelBatch = new ModelBatch();
+        frameBuffer.begin();
+        ScreenUtils.clear(0f, 0f, 0f, 0f, true);
+        for (int i = 0; i < ANGLES; ++i) {
+            float angle = i * MathUtils.PI2 / ANGLES;
+            Gdx.gl.glViewport(i * cellWidth, 0, cellWidth, CELL_HEIGHT);
+            camera.position.set(MathUtils.sin(angle), 0f, MathUtils.cos(angle)).scl(radius + 0.5f).add(center);
+            camera.up.set(Vector3.Y);
+            camera.lookAt(center);
+            camera.update();
+            modelBatch.begin(camera);
+            modelBatch.render(template.model, bakeEnvironment);
+            modelBatch.end();
+        }
+        frameBuffer.end();
+        modelBatch.dispose();
+    }
+
+    public void clear() {
+        quadCount = 0;
+    }
+
+    /**
+     * Append the impostor quad of the given object.
+     * @param lodFade 0 if the object is fully drawn with its model, 1 if fully drawn as impostor.
+     */
+    public void add(StaticGameObject object, Camera cam, float lodFade) {
+        if (quadCount >= capacity) grow();
+        Matrix4 transform = object.transform;
+        Vector3 c = tempCenter.set(center).mul(transform);
+        // Direction to camera in template space selects the atlas cell.
+        float dx = cam.position.x - c.x;
+        float dz = cam.position.z - c.z;
+        float[] m = transform.val;
+        float lx = m[Matrix4.M00] * dx + m[Matrix4.M20] * dz;
+        float lz = m[Matrix4.M02] * dx + m[Matrix4.M22] * dz;
+        int cell = MathUtils.round(MathUtils.atan2(lx, lz) * ANGLES / MathUtils.PI2);
+        cell = ((cell % ANGLES) + ANGLES) % ANGLES;
+        float u0 = (float) cell / ANGLES;
+        float u1 = (float) (cell + 1) / ANGLES;
+
+        Vector3 right = tempDir.set(dz, 0f, -dx).nor().scl(radius);
+        float y0 = c.y - halfHeight;
+        float y1 = c.y + halfHeight;
+        int i = quadCount * FLOATS_PER_QUAD;
+        i = vertex(i, c.x - right.x, y0, c.z - right.z, u0, 0f, lodFade);
+        i = vertex(i, c.x + right.x, y0, c.z + right.z, u1, 0f, lodFade);
+        i = vertex(i, c.x + right.x, y1, c.z + right.z, u1, 1f, lodFade);
+        vertex(i, c.x - right.x, y1, c.z - right.z, u0, 1f, lodFade);
+        quadCount++;
+    }
+
+    public boolean hasQuads() {
+        return quadCount > 0;
+    }
+
+    private int vertex(int i, float x, float y, float z, float u, float v, float lodFade) {
+        vertices[i++] = x;
+        vertices[i++] = y;
+        vertices[i++] = z;
+        vertices[i++] = u;
+        vertices[i++] = v;
+        vertices[i++] = lodFade;
+        return i;
+    }
+
+    private void grow() {
+        capacity = Math.max(64, capacity * 2);
+        float[] newVertices = new float[capacity * FLOATS_PER_QUAD];
+        if (vertices != null) System.arraycopy(vertices, 0, newVertices, 0, quadCount * FLOATS_PER_QUAD);
+        vertices = newVertices;
+        if (mesh != null) mesh.dispose();
+        mesh = new Mesh(false, capacity * 4, capacity * 6,
+                new VertexAttribute(VertexAttributes.Usage.Position, 3, ShaderProgram.POSITION_ATTRIBUTE),
+                new VertexAttribute(VertexAttributes.Usage.TextureCoordinates, 2, ShaderProgram.TEXCOORD_ATTRIBUTE + "0"),
+                new VertexAttribute(VertexAttributes.Usage.Generic, 1, "a_lodFade"));
+        short[] indices = new short[capacity * 6];
+        for (int q = 0, i = 0; q < capacity; ++q) {
+            short v = (short) (q * 4);
+            indices[i++] = v;
+            indices[i++] = (short) (v + 1);
+            indices[i++] = (short) (v + 2);
+            indices[i++] = (short) (v + 2);
+            indices[i++] = (short) (v + 3);
+            indices[i++] = v;
+        }
+        mesh.setIndices(indices);
+    }
+
+    /**
+     * Draw the quads added since {@link #clear()}. The shader must be bound.
+     * @return Number of quads drawn.
+     */
+    public int render(ShaderProgram shader, int textureUnit) {
+        if (quadCount == 0) return 0;
+        shader.setUniformi("u_texture", textureUnit);
+        mesh.setVertices(vertices, 0, quadCount * FLOATS_PER_QUAD);
+        mesh.render(shader, GL20.GL_TRIANGLES, 0, quadCount * 6);
+        return quadCount;
+    }
+
+    @Override
+    public void dispose() {
+        frameBuffer.dispose();
+        if (mesh != null) mesh.dispose();
+    }
+}
@@ -0,0 +1,372 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.attributes.BlendingAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.shaders.DefaultShader;
+import com.badlogic.gdx.graphics.g3d.utils.RenderContext;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
+import io.github.necrashter.natural_revenge.AssetManager2;
+import io.github.necrashter.natural_revenge.Main;
+import io.github.necrashter.natural_revenge.world.objects.StaticGameObject;
+
+import java.util.Arrays;
+
+/**
+ * Renders static props (trees) that share a {@link AssetManager2.GameObjectTemplate}.
+ * Visible objects are collected during culling via {@link #add(StaticGameObject)} and drawn together in
+ * {@link #render(Camera, Environment, RenderContext)}: one instanced draw per mesh part when GL30 is available,
+ * otherwise one shader and material bind per mesh part with only the world transform changing per object.
+ * <p>
+ * Templates with an {@link ImpostorAtlas} are drawn as impostors beyond {@link #getImpostorDistance}, with a dithered
+ * cross-fade of {@link #IMPOSTOR_FADE_BAND} length before that distance. The distance follows the far plane, which is
+ * the view distance of the world and also sets the fog, so that impostors only appear where the fog hides them.
+ */
+public class InstancedPropRenderer implements Disposable {
+    /**
+     * Instance data is the upper 3 rows of the world transform.
+     */
+    public static final int FLOATS_PER_INSTANCE = 12;
+    public static final int INITIAL_CAPACITY = 256;
+    /**
+     * Fog factor of {@link DefaultShader} at the distance where the props become impostors.
+     */
+    public static final float IMPOSTOR_FOG = 0.6f;
+    public static final float IMPOSTOR_FADE_BAND = 3f;
+    /**
+     * Fog of {@link DefaultShader} is the squared distance times this over the squared far plane.
+     */
+    private static final float FOG_SCALE = 1.1881f;
+    private static final VertexAttribute[] INSTANCE_ATTRIBUTES = {
+            new VertexAttribute(VertexAttributes.Usage.Generic, 4, "i_worldTrans0"),
+            new VertexAttribute(VertexAttributes.Usage.Generic, 4, "i_worldTrans1"),
+            new VertexAttribute(VertexAttributes.Usage.Generic, 4, "i_worldTrans2"),
+    };
+    private static final Matrix4 tempMatrix = new Matrix4();
+    private static final Vector3 tempPosition = new Vector3();
+    /**
+     * Used as LOD fade start when the template has no impostor.
+     */
+    private static final float NO_FADE = 1e9f;
+
+    public final boolean instanced;
+    private final ObjectMap<AssetManager2.GameObjectTemplate, PropBatch> batches = new ObjectMap<>();
+    private final Array<PropBatch> batchList = new Array<>();
+    private String vertexShader, fragmentShader;
+    private ShaderProgram impostorShader = null;
+
+    /**
+     * Statistics about the last frame.
+     */
+    public int drawCalls, instanceCount, impostorCount;
+
+    public InstancedPropRenderer() {
+        instanced = Gdx.gl30 != null;
+    }
+
+    /**
+     * Add an object to the instance list of this frame. Called by objects that passed culling.
+     */
+    public void add(StaticGameObject object) {
+        PropBatch batch = batches.get(object.template);
+        if (batch == null) {
+            batch = new PropBatch(object.template);
+            batches.put(object.template, batch);
+            batchList.add(batch);
+        }
+        batch.visible.add(object);
+    }
+
+    /**
+     * Render the opaque parts and the impostors. Must be followed by {@link #renderBlended(Camera, RenderContext)}.
+     */
+    public void renderOpaque(Camera cam, Environment environment, RenderContext context) {
+        drawCalls = 0;
+        instanceCount = 0;
+        impostorCount = 0;
+        for (PropBatch batch : batchList) {
+            if (batch.visible.size == 0) continue;
+            batch.prepare(environment);
+            batch.splitLod(cam);
+            if (instanced) batch.uploadInstances();
+            instanceCount += batch.near.size;
+        }
+        renderPass(cam, context, false);
+        renderImpostors(cam, environment, context);
+    }
+
+    /**
+     * Render the blended parts, e.g. alpha tested foliage, after all opaque geometry and clear the lists of this frame.
+     */
+    public void renderBlended(Camera cam, RenderContext context) {
+        renderPass(cam, context, true);
+        for (PropBatch batch : batchList) {
+            batch.visible.clear();
+            batch.near.clear();
+            if (batch.template.impostor != null) batch.template.impostor.clear();
+        }
+    }
+
+    private void renderImpostors(Camera cam, Environment environment, RenderContext context) {
+        boolean any = false;
+        for (PropBatch batch : batchList) {
+            if (batch.template.impostor != null && batch.template.impostor.hasQuads()) {
+                any = true;
+                break;
+            }
+        }
+        if (!any) return;
+        if (impostorShader == null) {
+            impostorShader = Main.gpuCache.acquireProgram("shaders/impostor.vert", "shaders/impostor.frag");
+        }
+        context.setDepthTest(GL20.GL_LEQUAL);
+        context.setDepthMask(true);
+        context.setCullFace(GL20.GL_NONE);
+        context.setBlending(false, GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        impostorShader.bind();
+        impostorShader.setUniformMatrix("u_projViewTrans", cam.combined);
+        ColorAttribute fog = (ColorAttribute) environment.get(ColorAttribute.Fog);
+        if (fog != null) {
+            // Same as the fog of DefaultShader.
+            impostorShader.setUniformf("u_cameraPosition", cam.position.x, cam.position.y, cam.position.z,
+                    FOG_SCALE / (cam.far * cam.far));
+            impostorShader.setUniformf("u_fogColor", fog.color);
+        } else {
+            impostorShader.setUniformf("u_cameraPosition", cam.position.x, cam.position.y, cam.position.z, 0f);
+        }
+        impostorShader.setUniformf("u_alphaTest", 0.5f);
+        for (PropBatch batch : batchList) {
+            ImpostorAtlas impostor = batch.template.impostor;
+            if (impostor == null || !impostor.hasQuads()) continue;
+            int unit = context.textureBinder.bind(impostor.texture);
+            impostorCount += impostor.render(impostorShader, unit);
+            drawCalls++;
+        }
+    }
+
+    /**
+     * @return Distance where the fog reaches {@link #IMPOSTOR_FOG}, e.g. 17.8 for the default view distance of 25.
+     */
+    public static float getImpostorDistance(Camera cam) {
+        return cam.far * (float) Math.sqrt(IMPOSTOR_FOG / FOG_SCALE);
+    }
+
+    private void renderPass(Camera cam, RenderContext context, boolean blended) {
+        for (PropBatch batch : batchList) {
+            if (batch.near.size == 0) continue;
+            for (Part part : batch.parts) {
+                if (part.blended != blended) continue;
+                part.shader.begin(cam, context);
+                if (batch.template.impostor != null) {
+                    part.shader.program.setUniformf("u_lodFade",
+                            getImpostorDistance(cam) - IMPOSTOR_FADE_BAND, 1f / IMPOSTOR_FADE_BAND);
+                } else {
+                    part.shader.program.setUniformf("u_lodFade", NO_FADE, 1f);
+                }
+                if (instanced) {
+                    part.shader.render(part.renderable);
+                    drawCalls++;
+                } else {
+                    for (StaticGameObject object : batch.near) {
+                        part.renderable.worldTransform.set(object.transform).mul(part.group.localTransform);
+                        part.shader.render(part.renderable);
+                        drawCalls++;
+                    }
+                }
+                part.shader.end();
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for (PropBatch batch : batchList) {
+            batch.dispose();
+        }
+        batchList.clear();
+        batches.clear();
+        if (impostorShader != null) {
+            Main.gpuCache.release(impostorShader);
+            impostorShader = null;
+        }
+    }
+
+    /**
+     * Mesh parts that use the same source mesh and node transform share an instance buffer.
+     */
+    private static class MeshGroup {
+        final Mesh mesh;
+        final Mesh sourceMesh;
+        final Matrix4 localTransform;
+        int capacity;
+        float[] instanceData;
+
+        MeshGroup(Mesh sourceMesh, Matrix4 localTransform, boolean instanced) {
+            this.sourceMesh = sourceMesh;
+            this.localTransform = new Matrix4(localTransform);
+            if (instanced) {
+                capacity = INITIAL_CAPACITY;
+                instanceData = new float[capacity * FLOATS_PER_INSTANCE];
+                mesh = sourceMesh.copy(true);
+                mesh.enableInstancedRendering(false, capacity, INSTANCE_ATTRIBUTES);
+            } else {
+                mesh = sourceMesh;
+            }
+        }
+
+        void upload(Array<StaticGameObject> objects) {
+            if (objects.size > capacity) {
+                while (objects.size > capacity) capacity *= 2;
+                instanceData = new float[capacity * FLOATS_PER_INSTANCE];
+                mesh.disableInstancedRendering();
+                mesh.enableInstancedRendering(false, capacity, INSTANCE_ATTRIBUTES);
+            }
+            int i = 0;
+            for (StaticGameObject object : objects) {
+                float[] m = tempMatrix.set(object.transform).mul(localTransform).val;
+                instanceData[i++] = m[Matrix4.M00];
+                instanceData[i++] = m[Matrix4.M01];
+                instanceData[i++] = m[Matrix4.M02];
+                instanceData[i++] = m[Matrix4.M03];
+                instanceData[i++] = m[Matrix4.M10];
+                instanceData[i++] = m[Matrix4.M11];
+                instanceData[i++] = m[Matrix4.M12];
+                instanceData[i++] = m[Matrix4.M13];
+                instanceData[i++] = m[Matrix4.M20];
+                instanceData[i++] = m[Matrix4.M21];
+                instanceData[i++] = m[Matrix4.M22];
+                instanceData[i++] = m[Matrix4.M23];
+            }
+            mesh.setInstanceData(instanceData, 0, i);
+        }
+
+        boolean matches(Mesh sourceMesh, Matrix4 localTransform) {
+            return this.sourceMesh == sourceMesh && Arrays.equals(this.localTransform.val, localTransform.val);
+        }
+    }
+
+    private static class Part {
+        final Renderable renderable;
+        final MeshGroup group;
+        final boolean blended;
+        final DefaultShader shader;
+
+        Part(Renderable renderable, MeshGroup group, DefaultShader shader) {
+            this.renderable = renderable;
+            this.group = group;
+            this.shader = shader;
+            blended = renderable.material.has(BlendingAttribute.Type);
+        }
+    }
+
+    private class PropBatch implements Disposable {
+        final AssetManager2.GameObjectTemplate template;
+        final Array<StaticGameObject> visible = new Array<>(false, 64);
+        /**
+         * Visible objects that are drawn with their model.
+         */
+        final Array<StaticGameObject> near = new Array<>(false, 64);
+        final Array<MeshGroup> groups = new Array<>();
+        final Array<Part> parts = new Array<>();
+        Environment environment = null;
+
+        PropBatch(AssetManager2.GameObjectTemplate template) {
+            this.template = template;
+        }
+
+        /**
+         * Shaders depend on the environment, which is only known when rendering.
+         */
+        void prepare(Environment environment) {
+            if (this.environment == environment) return;
+            dispose();
+            this.environment = environment;
+            if (vertexShader == null) {
+                vertexShader = Gdx.files.internal("shaders/prop.vert").readString();
+                fragmentShader = Gdx.files.internal("shaders/prop.frag").readString();
+            }
+            DefaultShader.Config config = new DefaultShader.Config(vertexShader, fragmentShader);
+
+            Array<Renderable> renderables = new Array<>();
+            template.model.getRenderables(renderables, new Pool<Renderable>() {
+                @Override
+                protected Renderable newObject() {
+                    return new Renderable();
+                }
+            });
+            for (Renderable renderable : renderables) {
+                MeshGroup group = null;
+                for (MeshGroup g : groups) {
+                    if (g.matches(renderable.meshPart.mesh, renderable.worldTransform)) {
+                        group = g;
+                        break;
+                    }
+                }
+                if (group == null) {
+                    group = new MeshGroup(renderable.meshPart.mesh, renderable.worldTransform, instanced);
+                    groups.add(group);
+                }
+                renderable.meshPart.mesh = group.mesh;
+                renderable.environment = environment;
+                String prefix = DefaultShader.createPrefix(renderable, config);
+                if (instanced) prefix += "#define instancedFlag\n";
+                DefaultShader shader = Main.gpuCache.acquireDefaultShader(renderable, config, prefix);
+                parts.add(new Part(renderable, group, shader));
+            }
+        }
+
+        /**
+         * Split visible objects into the ones drawn with their model and the ones drawn as impostors.
+         * Objects in the fade band are in both.
+         */
+        void splitLod(Camera cam) {
+            ImpostorAtlas impostor = template.impostor;
+            if (impostor == null) {
+                near.addAll(visible);
+                return;
+            }
+            float fadeStart = getImpostorDistance(cam) - IMPOSTOR_FADE_BAND;
+            for (StaticGameObject object : visible) {
+                float distance = cam.position.dst(object.transform.getTranslation(tempPosition));
+                float fade = MathUtils.clamp((distance - fadeStart) / IMPOSTOR_FADE_BAND, 0f, 1f);
+                if (fade < 1f) near.add(object);
+                if (fade > 0f) impostor.add(object, cam, fade);
+            }
+        }
+
+        void uploadInstances() {
+            for (MeshGroup group : groups) {
+                group.upload(near);
+            }
+        }
+
+        @Override
+        public void dispose() {
+            for (Part part : parts) {
+                Main.gpuCache.release(part.shader);
+            }
+            parts.clear();
+            if (instanced) {
+                for (MeshGroup group : groups) {
+                    group.mesh.dispose();
+                }
+            }
+            groups.clear();
+            environment = null;
+        }
+    }
+}
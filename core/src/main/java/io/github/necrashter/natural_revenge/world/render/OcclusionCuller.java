@@ -0,0 +1,316 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import io.github.necrashter.natural_revenge.world.GameWorld;
+import io.github.necrashter.natural_revenge.world.Terrain;
+import io.github.necrashter.natural_revenge.world.geom.BoxShape;
+import io.github.necrashter.natural_revenge.world.objects.StaticGameObject;
+
+import java.util.Arrays;
+
+/**
+ * Software occlusion culling with a low resolution depth buffer on CPU. Doesn't need GPU queries.
+ * <p>
+ * Occluders are solid boxes that are guaranteed to be hidden inside opaque geometry:
+ * the part of each terrain chunk below its lowest vertex, and the trunk hitboxes of trees.
+ * They are rasterised conservatively: only pixels that are fully covered are written,
+ * and the depth written is the farthest corner of the box.
+ * Bounds are tested against the pixels they may touch, using their nearest depth.
+ * <p>
+ * Per frame: {@link #begin(Camera, Terrain, float)}, then {@link #addCandidate(StaticGameObject)} for each static object that passed
+ * frustum culling, then {@link #submitCandidates(GameWorld)}. After that, {@link #isVisible} can be used directly.
+ */
+public class OcclusionCuller {
+    public static final int WIDTH = 128;
+    public static final int HEIGHT = 72;
+    /**
+     * Side length of terrain chunks in cells.
+     */
+    public static final int CHUNK_SIZE = 5;
+    /**
+     * Trunk hitboxes are shrunk horizontally by this factor since they may be slightly larger than the mesh.
+     */
+    public static final float TRUNK_SCALE = 0.75f;
+
+    public boolean enabled = true;
+    /**
+     * Only trees closer than this are used as occluders. Far away trunks cover too few pixels.
+     */
+    public float occluderDistance = 20f;
+
+    /**
+     * Statistics about the last frame.
+     */
+    public int occluders, tested, culled;
+
+    private final float[] depth = new float[WIDTH * HEIGHT];
+    private final Array<StaticGameObject> candidates = new Array<>(false, 256);
+    private final Vector3 tmp = new Vector3();
+
+    private Terrain terrain = null;
+    private float[] chunkHeights;
+    private int chunksX, chunksZ;
+    private float terrainBottom;
+
+    private Camera cam;
+    private float[] m;
+    private final float[] xs = new float[8], ys = new float[8];
+    private final float[] hullX = new float[16], hullY = new float[16];
+    private final int[] order = new int[8];
+
+    /**
+     * Compute the lowest height of each terrain chunk. Terrain is static, so this is done once.
+     */
+    private void setTerrain(Terrain terrain) {
+        this.terrain = terrain;
+        chunksX = (terrain.verticesWidth - 2) / CHUNK_SIZE + 1;
+        chunksZ = (terrain.verticesHeight - 2) / CHUNK_SIZE + 1;
+        chunkHeights = new float[chunksX * chunksZ];
+        terrainBottom = Float.POSITIVE_INFINITY;
+        for (int cz = 0; cz < chunksZ; ++cz) {
+            for (int cx = 0; cx < chunksX; ++cx) {
+                float min = Float.POSITIVE_INFINITY;
+                for (int h = cz * CHUNK_SIZE; h <= (cz + 1) * CHUNK_SIZE; ++h) {
+                    for (int w = cx * CHUNK_SIZE; w <= (cx + 1) * CHUNK_SIZE; ++w) {
+                        min = Math.min(min, terrain.getVertexHeight(w, h));
+                    }
+                }
+                chunkHeights[cx + chunksX * cz] = min;
+                terrainBottom = Math.min(terrainBottom, min);
+            }
+        }
+        terrainBottom -= 1f;
+    }
+
+    /**
+     * Clear the depth buffer and rasterise the terrain.
+     */
+    public void begin(Camera cam, Terrain terrain, float viewDistance) {
+        this.cam = cam;
+        m = cam.combined.val;
+        occluders = tested = culled = 0;
+        candidates.clear();
+        Arrays.fill(depth, Float.POSITIVE_INFINITY);
+        if (!enabled) return;
+        if (this.terrain != terrain) setTerrain(terrain);
+        final float maxDist2 = viewDistance * viewDistance;
+        for (int cz = 0; cz < chunksZ; ++cz) {
+            for (int cx = 0; cx < chunksX; ++cx) {
+                float x0 = cx * CHUNK_SIZE - terrain.halfWidth;
+                float z0 = cz * CHUNK_SIZE - terrain.halfHeight;
+                float x1 = Math.min(x0 + CHUNK_SIZE, terrain.halfWidth);
+                float z1 = Math.min(z0 + CHUNK_SIZE, terrain.halfHeight);
+                float top = chunkHeights[cx + chunksX * cz];
+                float dx = Math.max(0f, Math.max(x0 - cam.position.x, cam.position.x - x1));
+                float dz = Math.max(0f, Math.max(z0 - cam.position.z, cam.position.z - z1));
+                if (dx * dx + dz * dz > maxDist2) continue;
+                if (!cam.frustum.boundsInFrustum(
+                        (x0 + x1) * 0.5f, (terrainBottom + top) * 0.5f, (z0 + z1) * 0.5f,
+                        (x1 - x0) * 0.5f, (top - terrainBottom) * 0.5f, (z1 - z0) * 0.5f)) continue;
+                rasteriseBox(x0, terrainBottom, z0, x1, top, z1);
+            }
+        }
+    }
+
+    /**
+     * Rasterise the trunk of the object if it's close enough, and defer the visibility test until all occluders are
+     * rasterised.
+     */
+    public void addCandidate(StaticGameObject object) {
+        candidates.add(object);
+        if (!enabled) return;
+        // Without a separate hitbox node, the physics shape is the bounding box of the whole model.
+        if (!(object.physicsShape instanceof BoxShape) || object.physicsShape == object.modelShape) return;
+        BoxShape box = (BoxShape) object.physicsShape;
+        object.transform.getTranslation(tmp);
+        if (tmp.dst2(cam.position) > occluderDistance * occluderDistance) return;
+        // Objects are rotated around Y, so use the axis aligned square that fits in any rotation of the box.
+        float half = Math.min(box.dimensions.x, box.dimensions.z) * TRUNK_SCALE * 0.7071f
+                - (float) Math.sqrt(box.center.x * box.center.x + box.center.z * box.center.z);
+        if (half <= 0f) return;
+        float y = tmp.y + box.center.y;
+        rasteriseBox(tmp.x - half, y - box.dimensions.y, tmp.z - half,
+                tmp.x + half, y + box.dimensions.y, tmp.z + half);
+    }
+
+    /**
+     * Test the deferred candidates and send the visible ones to {@link GameWorld#propRenderer}.
+     */
+    public void submitCandidates(GameWorld world) {
+        for (StaticGameObject object : candidates) {
+            if (isVisible(object)) {
+                world.propRenderer.add(object);
+                world.visibleCount++;
+            }
+        }
+        candidates.clear();
+    }
+
+    /**
+     * Test the model shape of the object, enlarged to contain all of its rotations around Y.
+     */
+    public boolean isVisible(StaticGameObject object) {
+        if (!(object.modelShape instanceof BoxShape)) return true;
+        BoxShape shape = (BoxShape) object.modelShape;
+        object.transform.getTranslation(tmp);
+        float half = (float) Math.sqrt(shape.center.x * shape.center.x + shape.center.z * shape.center.z)
+                + (float) Math.sqrt(shape.dimensions.x * shape.dimensions.x + shape.dimensions.z * shape.dimensions.z);
+        float y = tmp.y + shape.center.y;
+        return isVisible(tmp.x - half, y - shape.dimensions.y, tmp.z - half,
+                tmp.x + half, y + shape.dimensions.y, tmp.z + half);
+    }
+
+    public boolean isVisible(Vector3 center, float radius) {
+        return isVisible(center.x - radius, center.y - radius, center.z - radius,
+                center.x + radius, center.y + radius, center.z + radius);
+    }
+
+    public boolean isVisible(Vector3 min, Vector3 max) {
+        return isVisible(min.x, min.y, min.z, max.x, max.y, max.z);
+    }
+
+    /**
+     * @return False if the axis aligned box is certainly hidden behind the occluders.
+     */
+    public boolean isVisible(float x0, float y0, float z0, float x1, float y1, float z1) {
+        if (!enabled) return true;
+        tested++;
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        float nearest = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < 8; ++i) {
+            float x = (i & 1) == 0 ? x0 : x1;
+            float y = (i & 2) == 0 ? y0 : y1;
+            float z = (i & 4) == 0 ? z0 : z1;
+            float w = m[Matrix4.M30] * x + m[Matrix4.M31] * y + m[Matrix4.M32] * z + m[Matrix4.M33];
+            // Crosses the near plane.
+            if (w < cam.near) return true;
+            float sx = (m[Matrix4.M00] * x + m[Matrix4.M01] * y + m[Matrix4.M02] * z + m[Matrix4.M03]) / w;
+            float sy = (m[Matrix4.M10] * x + m[Matrix4.M11] * y + m[Matrix4.M12] * z + m[Matrix4.M13]) / w;
+            minX = Math.min(minX, sx);
+            maxX = Math.max(maxX, sx);
+            minY = Math.min(minY, sy);
+            maxY = Math.max(maxY, sy);
+            nearest = Math.min(nearest, w);
+        }
+        int px0 = Math.max(0, (int) Math.floor((minX * 0.5f + 0.5f) * WIDTH));
+        int px1 = Math.min(WIDTH - 1, (int) Math.floor((maxX * 0.5f + 0.5f) * WIDTH));
+        int py0 = Math.max(0, (int) Math.floor((minY * 0.5f + 0.5f) * HEIGHT));
+        int py1 = Math.min(HEIGHT - 1, (int) Math.floor((maxY * 0.5f + 0.5f) * HEIGHT));
+        // Off screen, let the frustum test decide.
+        if (px0 > px1 || py0 > py1) return true;
+        for (int py = py0; py <= py1; ++py) {
+            int row = py * WIDTH;
+            for (int px = px0; px <= px1; ++px) {
+                if (depth[row + px] >= nearest) return true;
+            }
+        }
+        culled++;
+        return false;
+    }
+
+    /**
+     * Rasterise the convex hull of the projected box with the depth of its farthest corner.
+     */
+    private void rasteriseBox(float x0, float y0, float z0, float x1, float y1, float z1) {
+        float farthest = 0f;
+        for (int i = 0; i < 8; ++i) {
+            float x = (i & 1) == 0 ? x0 : x1;
+            float y = (i & 2) == 0 ? y0 : y1;
+            float z = (i & 4) == 0 ? z0 : z1;
+            float w = m[Matrix4.M30] * x + m[Matrix4.M31] * y + m[Matrix4.M32] * z + m[Matrix4.M33];
+            // Clipping isn't implemented, skip the boxes that cross the near plane.
+            if (w < cam.near) return;
+            xs[i] = ((m[Matrix4.M00] * x + m[Matrix4.M01] * y + m[Matrix4.M02] * z + m[Matrix4.M03]) / w * 0.5f + 0.5f)
+                    * WIDTH;
+            ys[i] = ((m[Matrix4.M10] * x + m[Matrix4.M11] * y + m[Matrix4.M12] * z + m[Matrix4.M13]) / w * 0.5f + 0.5f)
+                    * HEIGHT;
+            farthest = Math.max(farthest, w);
+        }
+        int n = convexHull();
+        if (n < 3) return;
+
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; ++i) {
+            minX = Math.min(minX, hullX[i]);
+            maxX = Math.max(maxX, hullX[i]);
+            minY = Math.min(minY, hullY[i]);
+            maxY = Math.max(maxY, hullY[i]);
+        }
+        int px0 = Math.max(0, (int) Math.floor(minX));
+        int px1 = Math.min(WIDTH - 1, (int) Math.floor(maxX));
+        int py0 = Math.max(0, (int) Math.floor(minY));
+        int py1 = Math.min(HEIGHT - 1, (int) Math.floor(maxY));
+        if (px0 > px1 || py0 > py1) return;
+        occluders++;
+
+        for (int py = py0; py <= py1; ++py) {
+            float cy = py + 0.5f;
+            int row = py * WIDTH;
+            for (int px = px0; px <= px1; ++px) {
+                float cx = px + 0.5f;
+                boolean covered = true;
+                for (int i = 0; i < n; ++i) {
+                    float ex = hullX[i + 1] - hullX[i];
+                    float ey = hullY[i + 1] - hullY[i];
+                    // Edge function at the pixel corner that is farthest inside the edge's outer side.
+                    float e = ex * (cy - hullY[i]) - ey * (cx - hullX[i]) - 0.5f * (Math.abs(ex) + Math.abs(ey));
+                    if (e < 0f) {
+                        covered = false;
+                        break;
+                    }
+                }
+                if (covered && farthest < depth[row + px]) depth[row + px] = farthest;
+            }
+        }
+    }
+
+    /**
+     * Counter-clockwise convex hull of the projected corners (monotone chain).
+     * The result is in {@link #hullX}, {@link #hullY}, closed by repeating the first point.
+     * @return Number of hull points.
+     */
+    private int convexHull() {
+        for (int i = 0; i < 8; ++i) order[i] = i;
+        // Insertion sort by x, then y.
+        for (int i = 1; i < 8; ++i) {
+            int k = order[i];
+            int j = i - 1;
+            while (j >= 0 && (xs[order[j]] > xs[k] || (xs[order[j]] == xs[k] && ys[order[j]] > ys[k]))) {
+                order[j + 1] = order[j];
+                --j;
+            }
+            order[j + 1] = k;
+        }
+        int n = 0;
+        for (int i = 0; i < 8; ++i) {
+            n = pushHullPoint(n, 0, order[i]);
+        }
+        int lower = n;
+        for (int i = 6; i >= 0; --i) {
+            n = pushHullPoint(n, lower - 1, order[i]);
+        }
+        // The last point equals the first one.
+        return n - 1;
+    }
+
+    /**
+     * @param start Index of the first point of the current chain, which is never removed.
+     */
+    private int pushHullPoint(int n, int start, int k) {
+        float x = xs[k], y = ys[k];
+        while (n >= start + 2) {
+            float ax = hullX[n - 2], ay = hullY[n - 2];
+            float bx = hullX[n - 1], by = hullY[n - 1];
+            if ((bx - ax) * (y - ay) - (by - ay) * (x - ax) > 0f) break;
+            --n;
+        }
+        hullX[n] = x;
+        hullY[n] = y;
+        return n + 1;
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.graphics.g3d.ModelInstance;
+import com.badlogic.gdx.graphics.g3d.model.Animation;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * CPU skinning poses shared between instances of the same model configuration.
+ * <p>
+ * Poses are keyed on (clip, time quantised to {@link #getTimeQuantum()}). An instance that plays a single clip looks
+ * up the pose and points the bone arrays of its node parts at the cached matrices instead of computing the hierarchy.
+ * Blended transitions are not cached, see {@link BakedAnimationController}.
+ * Only used when every node part is skinned, since the node transforms of non-skinned parts aren't cached.
+ */
+public class PoseCache {
+    public static final float DEFAULT_TIME_QUANTUM = 1f / 30f;
+    /**
+     * Instances play looping clips with a random offset of up to this many quanta to avoid lockstep.
+     */
+    public static final int PHASE_SLOTS = 8;
+
+    private final ObjectMap<String, Array<Pose>> clips = new ObjectMap<>();
+    private final int[] boneCounts;
+    private float timeQuantum = DEFAULT_TIME_QUANTUM;
+
+    /**
+     * Statistics.
+     */
+    public int hits, misses;
+
+    public static class Pose {
+        /**
+         * Clip time at which the pose is computed.
+         */
+        public final float time;
+        final Matrix4[][] bones;
+        boolean computed = false;
+
+        public boolean isComputed() {
+            return computed;
+        }
+
+        Pose(float time, int[] boneCounts) {
+            this.time = time;
+            bones = new Matrix4[boneCounts.length][];
+            for (int i = 0; i < boneCounts.length; ++i) {
+                bones[i] = new Matrix4[boneCounts[i]];
+                for (int j = 0; j < boneCounts[i]; ++j) bones[i][j] = new Matrix4();
+            }
+        }
+    }
+
+    public PoseCache(ModelInstance template) {
+        Array<NodePart> parts = new Array<>();
+        collectSkinnedParts(template.nodes, parts);
+        boneCounts = new int[parts.size];
+        for (int i = 0; i < parts.size; ++i) {
+            boneCounts[i] = parts.get(i).bones.length;
+        }
+    }
+
+    public float getTimeQuantum() {
+        return timeQuantum;
+    }
+
+    /**
+     * Change the time quantum. Clears the cache. Set from the Pose Rate option through
+     * {@link io.github.necrashter.natural_revenge.AssetManager2#setPoseRate}.
+     */
+    public void setTimeQuantum(float timeQuantum) {
+        this.timeQuantum = timeQuantum;
+        clips.clear();
+    }
+
+    /**
+     * @return Cached pose of the clip at the given time. Must be computed with {@link #store} if
+     * {@link Pose#isComputed()} is false.
+     */
+    public Pose get(Animation animation, float time) {
+        Array<Pose> poses = clips.get(animation.id);
+        if (poses == null) {
+            poses = new Array<>();
+            clips.put(animation.id, poses);
+        }
+        int frame = Math.max(0, (int) (time / timeQuantum));
+        while (poses.size <= frame) poses.add(null);
+        Pose pose = poses.get(frame);
+        if (pose == null) {
+            pose = new Pose(Math.min(frame * timeQuantum, animation.duration), boneCounts);
+            poses.set(frame, pose);
+        }
+        if (pose.computed) hits++;
+        else misses++;
+        return pose;
+    }
+
+    /**
+     * Copy the bones computed by an instance into the pose.
+     * @param ownBones Bone arrays of the skinned node parts of the instance.
+     */
+    public void store(Pose pose, Array<Matrix4[]> ownBones) {
+        for (int i = 0; i < ownBones.size; ++i) {
+            Matrix4[] source = ownBones.get(i);
+            for (int j = 0; j < source.length; ++j) {
+                pose.bones[i][j].set(source[j]);
+            }
+        }
+        pose.computed = true;
+    }
+
+    /**
+     * Node parts with bones in a consistent order for all instances of the same configuration.
+     */
+    public static void collectSkinnedParts(Iterable<Node> nodes, Array<NodePart> out) {
+        for (Node node : nodes) {
+            for (NodePart part : node.parts) {
+                if (part.bones != null) out.add(part);
+            }
+            collectSkinnedParts(node.getChildren(), out);
+        }
+    }
+
+    /**
+     * Put all nodes in rest pose so that a cached pose only depends on the clip, not on the previous ones.
+     */
+    public static void resetPose(Iterable<Node> nodes) {
+        for (Node node : nodes) {
+            node.localTransform.set(node.translation, node.rotation, node.scale);
+            resetPose(node.getChildren());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.GLTexture;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.ModelBatch;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.Shader;
+
+/**
+ * ModelBatch that renders its queue in two explicit passes, sorted by {@link RenderQueueSorter}:
+ * {@link #flushOpaque()} renders the opaque renderables and keeps the blended ones for {@link #flush()} or
+ * {@link #end()}, so that other renderers can draw their opaque geometry in between.
+ * <p>
+ * Also counts the state changes of each begin/end block.
+ */
+public class RenderQueue extends ModelBatch {
+    public final RenderQueueSorter queueSorter;
+
+    /**
+     * Statistics about the last begin/end block.
+     * Texture binds include other renderers that share the render context.
+     */
+    public int renderableCount, shaderSwitches, materialSwitches, textureSwitches, textureBinds;
+
+    public RenderQueue() {
+        super(new RenderQueueSorter());
+        queueSorter = (RenderQueueSorter) sorter;
+    }
+
+    @Override
+    public void begin(Camera cam) {
+        super.begin(cam);
+        renderableCount = shaderSwitches = materialSwitches = textureSwitches = 0;
+        context.textureBinder.resetCounts();
+    }
+
+    /**
+     * Render the opaque renderables of the queue. Blended ones are rendered with the next flush.
+     */
+    public void flushOpaque() {
+        sorter.sort(camera, renderables);
+        int count = queueSorter.opaqueCount;
+        if (count == 0) return;
+        renderRange(0, count);
+        // Renderables are returned to the pool in the next flush.
+        renderables.removeRange(0, count - 1);
+    }
+
+    @Override
+    public void flush() {
+        sorter.sort(camera, renderables);
+        renderRange(0, renderables.size);
+        renderablesPool.flush();
+        renderables.clear();
+    }
+
+    @Override
+    public void end() {
+        flush();
+        textureBinds = context.textureBinder.getBindCount();
+        super.end();
+    }
+
+    private void renderRange(int start, int end) {
+        Shader currentShader = null;
+        Material currentMaterial = null;
+        GLTexture currentTexture = null;
+        for (int i = start; i < end; i++) {
+            final Renderable renderable = renderables.get(i);
+            if (currentShader != renderable.shader) {
+                if (currentShader != null) currentShader.end();
+                currentShader = renderable.shader;
+                currentShader.begin(camera, context);
+                shaderSwitches++;
+            }
+            if (currentMaterial != renderable.material) {
+                currentMaterial = renderable.material;
+                materialSwitches++;
+            }
+            GLTexture texture = RenderQueueSorter.getTexture(renderable);
+            if (currentTexture != texture) {
+                currentTexture = texture;
+                textureSwitches++;
+            }
+            currentShader.render(renderable);
+        }
+        if (currentShader != null) currentShader.end();
+        renderableCount += end - start;
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.GLTexture;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.Shader;
+import com.badlogic.gdx.graphics.g3d.attributes.BlendingAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.TextureAttribute;
+import com.badlogic.gdx.graphics.g3d.utils.RenderableSorter;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+
+import java.util.Comparator;
+
+/**
+ * Sorts opaque renderables into buckets by shader, diffuse texture and material, front-to-back inside each bucket.
+ * Blended renderables come after the opaque ones, back-to-front.
+ * <p>
+ * Bucket ids are assigned in the order of first appearance in each sort, so they are stable while the scene is.
+ */
+public class RenderQueueSorter implements RenderableSorter, Comparator<Renderable> {
+    private final IdentityMap<Shader, Integer> shaderIds = new IdentityMap<>();
+    private final IdentityMap<GLTexture, Integer> textureIds = new IdentityMap<>();
+    private final IdentityMap<Material, Integer> materialIds = new IdentityMap<>();
+    private final Vector3 tmpV1 = new Vector3();
+    private final Vector3 tmpV2 = new Vector3();
+    private Camera camera;
+
+    /**
+     * Number of opaque renderables at the start of the list after the last sort.
+     */
+    public int opaqueCount;
+
+    public static boolean isBlended(Renderable renderable) {
+        BlendingAttribute blending = (BlendingAttribute) renderable.material.get(BlendingAttribute.Type);
+        return blending != null && blending.blended;
+    }
+
+    public static GLTexture getTexture(Renderable renderable) {
+        TextureAttribute texture = (TextureAttribute) renderable.material.get(TextureAttribute.Diffuse);
+        return texture == null ? null : texture.textureDescription.texture;
+    }
+
+    private static <K> int getId(IdentityMap<K, Integer> ids, K key) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = ids.size;
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * @return Id of the diffuse texture, or -1 if there is none, since null cannot be a key.
+     */
+    private int getTextureId(Renderable renderable) {
+        GLTexture texture = getTexture(renderable);
+        return texture == null ? -1 : textureIds.get(texture);
+    }
+
+    @Override
+    public void sort(Camera camera, Array<Renderable> renderables) {
+        this.camera = camera;
+        shaderIds.clear();
+        textureIds.clear();
+        materialIds.clear();
+        opaqueCount = 0;
+        for (Renderable renderable : renderables) {
+            if (isBlended(renderable)) continue;
+            opaqueCount++;
+            getId(shaderIds, renderable.shader);
+            GLTexture texture = getTexture(renderable);
+            if (texture != null) getId(textureIds, texture);
+            getId(materialIds, renderable.material);
+        }
+        renderables.sort(this);
+    }
+
+    private Vector3 getTranslation(Matrix4 worldTransform, Vector3 center, Vector3 output) {
+        if (center.isZero())
+            worldTransform.getTranslation(output);
+        else if (!worldTransform.hasRotationOrScaling())
+            worldTransform.getTranslation(output).add(center);
+        else
+            output.set(center).mul(worldTransform);
+        return output;
+    }
+
+    @Override
+    public int compare(Renderable o1, Renderable o2) {
+        final boolean b1 = isBlended(o1);
+        final boolean b2 = isBlended(o2);
+        if (b1 != b2) return b1 ? 1 : -1;
+        if (!b1) {
+            int result = shaderIds.get(o1.shader) - shaderIds.get(o2.shader);
+            if (result != 0) return result;
+            result = getTextureId(o1) - getTextureId(o2);
+            if (result != 0) return result;
+            result = materialIds.get(o1.material) - materialIds.get(o2.material);
+            if (result != 0) return result;
+        }
+        float d1 = camera.position.dst2(getTranslation(o1.worldTransform, o1.meshPart.center, tmpV1));
+        float d2 = camera.position.dst2(getTranslation(o2.worldTransform, o2.meshPart.center, tmpV2));
+        int result = Float.compare(d1, d2);
+        return b1 ? -result : result;
+    }
+}
@@ -0,0 +1,240 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.shaders.DefaultShader;
+import com.badlogic.gdx.graphics.g3d.utils.RenderContext;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+import io.github.necrashter.natural_revenge.Main;
+
+/**
+ * Draws all visible NPCs that share a {@link BakedAnimation} with one instanced draw per mesh part.
+ * Per instance data is the world transform and the animation state from {@link BakedAnimationController}.
+ */
+public class SkinnedInstanceRenderer implements Disposable {
+    /**
+     * Upper 3 rows of the world transform, then bone texture rows and blend weight.
+     */
+    public static final int FLOATS_PER_INSTANCE = 16;
+    public static final int INITIAL_CAPACITY = 64;
+    private static final VertexAttribute[] INSTANCE_ATTRIBUTES = {
+            new VertexAttribute(VertexAttributes.Usage.Generic, 4, "i_worldTrans0"),
+            new VertexAttribute(VertexAttributes.Usage.Generic, 4, "i_worldTrans1"),
+            new VertexAttribute(VertexAttributes.Usage.Generic, 4, "i_worldTrans2"),
+            new VertexAttribute(VertexAttributes.Usage.Generic, 4, "i_animation"),
+    };
+
+    private final ObjectMap<BakedAnimation, Batch> batches = new ObjectMap<>();
+    private final Array<Batch> batchList = new Array<>();
+    private String vertexShader, fragmentShader;
+
+    /**
+     * Statistics about the last frame.
+     */
+    public int drawCalls, instanceCount;
+
+    /**
+     * Add an instance to the list of this frame.
+     * @param transform World transform of the instance.
+     * @param controller Must be baked.
+     */
+    public void add(Matrix4 transform, BakedAnimationController controller) {
+        Batch batch = batches.get(controller.baked);
+        if (batch == null) {
+            batch = new Batch(controller.baked);
+            batches.put(controller.baked, batch);
+            batchList.add(batch);
+        }
+        batch.transforms.add(transform);
+        batch.controllers.add(controller);
+    }
+
+    public void render(Camera cam, Environment environment, RenderContext context) {
+        drawCalls = 0;
+        instanceCount = 0;
+        for (Batch batch : batchList) {
+            if (batch.transforms.size == 0) continue;
+            batch.prepare(environment);
+            batch.upload();
+            instanceCount += batch.transforms.size;
+            for (Part part : batch.parts) {
+                part.shader.begin(cam, context);
+                int unit = context.textureBinder.bind(batch.animation.getBoneTexture());
+                part.shader.program.setUniformi("u_boneTexture", unit);
+                part.shader.program.setUniformf("u_boneTexel",
+                        1f / batch.animation.getTextureWidth(),
+                        1f / batch.animation.getTextureHeight(),
+                        part.boneOffset);
+                part.shader.render(part.renderable);
+                part.shader.end();
+                drawCalls++;
+            }
+            batch.transforms.clear();
+            batch.controllers.clear();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for (Batch batch : batchList) {
+            batch.dispose();
+        }
+        batchList.clear();
+        batches.clear();
+    }
+
+    private static class MeshGroup {
+        final Mesh sourceMesh;
+        final Mesh mesh;
+        int capacity = INITIAL_CAPACITY;
+        float[] instanceData = new float[INITIAL_CAPACITY * FLOATS_PER_INSTANCE];
+
+        MeshGroup(Mesh sourceMesh) {
+            this.sourceMesh = sourceMesh;
+            mesh = sourceMesh.copy(true);
+            mesh.enableInstancedRendering(false, capacity, INSTANCE_ATTRIBUTES);
+        }
+
+        void upload(Array<Matrix4> transforms, Array<BakedAnimationController> controllers) {
+            if (transforms.size > capacity) {
+                while (transforms.size > capacity) capacity *= 2;
+                instanceData = new float[capacity * FLOATS_PER_INSTANCE];
+                mesh.disableInstancedRendering();
+                mesh.enableInstancedRendering(false, capacity, INSTANCE_ATTRIBUTES);
+            }
+            int i = 0;
+            for (int j = 0; j < transforms.size; ++j) {
+                float[] m = transforms.get(j).val;
+                instanceData[i++] = m[Matrix4.M00];
+                instanceData[i++] = m[Matrix4.M01];
+                instanceData[i++] = m[Matrix4.M02];
+                instanceData[i++] = m[Matrix4.M03];
+                instanceData[i++] = m[Matrix4.M10];
+                instanceData[i++] = m[Matrix4.M11];
+                instanceData[i++] = m[Matrix4.M12];
+                instanceData[i++] = m[Matrix4.M13];
+                instanceData[i++] = m[Matrix4.M20];
+                instanceData[i++] = m[Matrix4.M21];
+                instanceData[i++] = m[Matrix4.M22];
+                instanceData[i++] = m[Matrix4.M23];
+                BakedAnimationController controller = controllers.get(j);
+                if (controller.blend == 0f && controller.rowA == controller.rowB) {
+                    // Interpolate between consecutive frames of one clip.
+                    int row = MathUtils.floor(controller.rowA);
+                    instanceData[i++] = row;
+                    instanceData[i++] = row + 1;
+                    instanceData[i++] = controller.rowA - row;
+                } else {
+                    instanceData[i++] = controller.rowA;
+                    instanceData[i++] = controller.rowB;
+                    instanceData[i++] = controller.blend;
+                }
+                instanceData[i++] = 0f;
+            }
+            mesh.setInstanceData(instanceData, 0, i);
+        }
+    }
+
+    private static class Part {
+        final Renderable renderable;
+        final DefaultShader shader;
+        final int boneOffset;
+
+        Part(Renderable renderable, DefaultShader shader, int boneOffset) {
+            this.renderable = renderable;
+            this.shader = shader;
+            this.boneOffset = boneOffset;
+        }
+    }
+
+    /**
+     * {@link DefaultShader#createPrefix} only defines the bone weight attributes when the renderable has bones, which
+     * are cleared here, so they are defined from the vertex attributes of the mesh.
+     */
+    private static String createPrefix(Renderable renderable, DefaultShader.Config config) {
+        String prefix = DefaultShader.createPrefix(renderable, config);
+        VertexAttributes attributes = renderable.meshPart.mesh.getVertexAttributes();
+        for (int i = 0; i < attributes.size(); ++i) {
+            VertexAttribute attribute = attributes.get(i);
+            if (attribute.usage != VertexAttributes.Usage.BoneWeight) continue;
+            String define = "#define boneWeight" + attribute.unit + "Flag\n";
+            if (!prefix.contains(define)) prefix += define;
+        }
+        return prefix;
+    }
+
+    private class Batch implements Disposable {
+        final BakedAnimation animation;
+        final Array<Matrix4> transforms = new Array<>(false, 64);
+        final Array<BakedAnimationController> controllers = new Array<>(false, 64);
+        final Array<MeshGroup> groups = new Array<>();
+        final Array<Part> parts = new Array<>();
+        Environment environment = null;
+
+        Batch(BakedAnimation animation) {
+            this.animation = animation;
+        }
+
+        void prepare(Environment environment) {
+            if (this.environment == environment) return;
+            dispose();
+            this.environment = environment;
+            if (vertexShader == null) {
+                vertexShader = Gdx.files.internal("shaders/skinned.vert").readString();
+                fragmentShader = Gdx.files.internal("shaders/prop.frag").readString();
+            }
+            DefaultShader.Config config = new DefaultShader.Config(vertexShader, fragmentShader);
+            Array<Renderable> renderables = animation.getRenderables();
+            for (int i = 0; i < renderables.size; ++i) {
+                Renderable source = renderables.get(i);
+                MeshGroup group = null;
+                for (MeshGroup g : groups) {
+                    if (g.sourceMesh == source.meshPart.mesh) {
+                        group = g;
+                        break;
+                    }
+                }
+                if (group == null) {
+                    group = new MeshGroup(source.meshPart.mesh);
+                    groups.add(group);
+                }
+                Renderable renderable = new Renderable().set(source);
+                renderable.meshPart.mesh = group.mesh;
+                renderable.environment = environment;
+                // Bones come from the texture, this also avoids the bone count limit of DefaultShader.
+                renderable.bones = null;
+                DefaultShader shader = Main.gpuCache.acquireDefaultShader(renderable, config,
+                        createPrefix(renderable, config));
+                parts.add(new Part(renderable, shader, animation.getBoneOffset(i)));
+            }
+        }
+
+        void upload() {
+            for (MeshGroup group : groups) {
+                group.upload(transforms, controllers);
+            }
+        }
+
+        @Override
+        public void dispose() {
+            for (Part part : parts) {
+                Main.gpuCache.release(part.shader);
+            }
+            parts.clear();
+            for (MeshGroup group : groups) {
+                group.mesh.dispose();
+            }
+            groups.clear();
+            environment = null;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.necrashter.natural_revenge.world.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.PerspectiveCamera;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g3d.decals.Decal;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.github.necrashter.natural_revenge.Main;
+import io.github.necrashter.natural_revenge.world.GameObject;
+import io.github.necrashter.natural_revenge.world.GameWorld;
+import io.github.necrashter.natural_revenge.world.entities.GameEntity;
+
+/**
+ * Renders one sample of each kind of object a level can spawn into a small off-screen frame buffer while the level is
+ * loading. This way, shaders are compiled, textures are uploaded and animation poses are computed before the object
+ * first appears in the game.
+ * <p>
+ * Samples obtained from pools are given back when the pass is done. The objects are never added to the world.
+ */
+public class WarmupPass {
+    public static final int SIZE = 64;
+
+    private final Array<GameObject> objects = new Array<>();
+    private final Array<GameEntity> entities = new Array<>();
+    private final Array<Pool<Object>> pools = new Array<>();
+    private final Array<Object> pooledObjects = new Array<>();
+    private final Array<Decal> decals = new Array<>();
+
+    private final Vector3 savedPosition = new Vector3();
+    private final Vector3 savedDirection = new Vector3();
+    private final Vector3 savedUp = new Vector3();
+    private final Vector3 min = new Vector3();
+    private final Vector3 max = new Vector3();
+    private final Vector3 center = new Vector3();
+
+    /**
+     * Statistics of the last run.
+     */
+    public int sampleCount;
+    public long durationMillis;
+
+    public void add(GameObject object) {
+        objects.add(object);
+    }
+
+    public void add(GameEntity entity) {
+        entities.add(entity);
+    }
+
+    /**
+     * Warm up with an object obtained from the pool.
+     * @param pool Pool of {@link GameObject} or {@link GameEntity}.
+     */
+    @SuppressWarnings("unchecked")
+    public void addPool(Pool<?> pool) {
+        Object object = pool.obtain();
+        if (object instanceof GameEntity) {
+            entities.add((GameEntity) object);
+        } else {
+            objects.add((GameObject) object);
+        }
+        pools.add((Pool<Object>) pool);
+        pooledObjects.add(object);
+    }
+
+    /**
+     * Decal that is rendered with the decal batch of the world.
+     */
+    public void add(Decal decal) {
+        decals.add(decal);
+    }
+
+    /**
+     * Render all samples and clear the lists. The camera of the world is restored afterwards.
+     */
+    public void run(GameWorld world) {
+        long start = TimeUtils.millis();
+        PerspectiveCamera cam = world.cam;
+        savedPosition.set(cam.position);
+        savedDirection.set(cam.direction);
+        savedUp.set(cam.up);
+        boolean occlusionCulling = world.occlusionCuller.enabled;
+        world.occlusionCuller.enabled = false;
+
+        FrameBuffer frameBuffer = Main.gpuCache.acquireFrameBuffer(Pixmap.Format.RGBA8888, SIZE, SIZE, true);
+        frameBuffer.begin();
+        ScreenUtils.clear(0f, 0f, 0f, 1f, true);
+        for (GameObject object : objects) {
+            object.getMinPoint(min);
+            object.getMaxPoint(max);
+            begin(world);
+            object.render(world);
+            end(world);
+        }
+        for (GameEntity entity : entities) {
+            entity.getMinPoint(min);
+            entity.getMaxPoint(max);
+            begin(world);
+            entity.render(world);
+            end(world);
+            entity.warmup();
+        }
+        lookAt(cam, Vector3.Zero, 1f);
+        world.modelBatch.begin(cam);
+        center.set(cam.direction).scl(2f).add(cam.position);
+        world.decalPool.addBulletTrace(min.set(center).add(0.5f, 0f, 0f), max.set(center).sub(0.5f, 0f, 0f));
+        world.decalPool.render(cam, world.modelBatch.getRenderContext());
+        world.decalPool.clear();
+        world.modelBatch.end();
+        for (Decal decal : decals) {
+            decal.setPosition(center);
+            decal.lookAt(cam.position, cam.up);
+            world.decalBatch.add(decal);
+        }
+        world.decalBatch.flush();
+        // Make sure that the driver does the work now, not when the frame buffer is reused.
+        Gdx.gl.glFinish();
+        frameBuffer.end();
+        Main.gpuCache.release(frameBuffer);
+
+        cam.position.set(savedPosition);
+        cam.direction.set(savedDirection);
+        cam.up.set(savedUp);
+        cam.update();
+        world.occlusionCuller.enabled = occlusionCulling;
+        for (int i = 0; i < pools.size; ++i) {
+            pools.get(i).free(pooledObjects.get(i));
+        }
+
+        sampleCount = objects.size + entities.size + decals.size + 1;
+        durationMillis = TimeUtils.timeSinceMillis(start);
+        objects.clear();
+        entities.clear();
+        pools.clear();
+        pooledObjects.clear();
+        decals.clear();
+    }
+
+    /**
+     * Point the camera at the bounds in {@link #min} and {@link #max}, and begin the model batch.
+     */
+    private void begin(GameWorld world) {
+        center.set(min).add(max).scl(0.5f);
+        lookAt(world.cam, center, Math.max(1f, max.sub(min).len()));
+        world.modelBatch.begin(world.cam);
+    }
+
+    private void end(GameWorld world) {
+        world.modelBatch.flushOpaque();
+        world.skinnedRenderer.render(world.cam, world.environment, world.modelBatch.getRenderContext());
+        world.modelBatch.end();
+    }
+
+    private static void lookAt(PerspectiveCamera cam, Vector3 target, float size) {
+        cam.up.set(Vector3.Y);
+        cam.position.set(target).add(0f, size * 0.5f, size * 1.5f);
+        cam.lookAt(target);
+        cam.update();
+    }
+}
@@ -13,6 +13,8 @@ public class GwtLauncher extends GwtApplication {
             GwtApplicationConfiguration cfg = new GwtApplicationConfiguration(true);
             cfg.padVertical = 0;
             cfg.padHorizontal = 0;
+            // WebGL 2 enables instanced prop rendering. Falls back to WebGL 1 when unsupported.
+            cfg.useGL30 = true;
             return cfg;
             // If you want a fixed size application, comment out the above resizable section,
             // and uncomment below:
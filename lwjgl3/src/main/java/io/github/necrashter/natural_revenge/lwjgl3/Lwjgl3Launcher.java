@@ -7,6 +7,7 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 
+import io.github.necrashter.natural_revenge.ForkJoinTaskRunner;
 import io.github.necrashter.natural_revenge.GameScreen;
 import io.github.necrashter.natural_revenge.Main;
 import io.github.necrashter.natural_revenge.MenuScreen;
@@ -17,6 +18,7 @@ import io.github.necrashter.natural_revenge.world.player.EnumeratingRoller;
 public class Lwjgl3Launcher {
     public static void main(String[] args) {
         if (StartupHelper.startNewJvmIfRequired()) return; // This handles macOS support and helps on Windows.
+        Main.taskRunner = new ForkJoinTaskRunner();
         Main.PostInit postInit = new Main.PostInit() {
             @Override
             public void run(Main main) {